@@ -0,0 +1,41 @@
+package adapters;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import model.IntLinkedSet;
+
+import java.io.IOException;
+
+/* Подзадачи эпика сериализуются обычным массивом id, как и до перехода на IntLinkedSet */
+public class IntLinkedSetAdapter extends TypeAdapter<IntLinkedSet> {
+
+    @Override
+    public void write(JsonWriter jsonWriter, IntLinkedSet value) throws IOException {
+        if (value == null) {
+            jsonWriter.nullValue();
+            return;
+        }
+        jsonWriter.beginArray();
+        for (int id : value.toArray()) {
+            jsonWriter.value(id);
+        }
+        jsonWriter.endArray();
+    }
+
+    @Override
+    public IntLinkedSet read(JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return new IntLinkedSet();
+        }
+        IntLinkedSet set = new IntLinkedSet();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            set.add(jsonReader.nextInt());
+        }
+        jsonReader.endArray();
+        return set;
+    }
+}
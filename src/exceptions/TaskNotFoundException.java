@@ -0,0 +1,11 @@
+package exceptions;
+
+/* В пакете указан id задачи или эпика, которого нет в менеджере */
+public class TaskNotFoundException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TaskNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package exceptions;
+
+/* Задача пересекается по времени с сохранёнными задачами или с другой задачей того же пакета */
+public class TaskOverlapException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TaskOverlapException(String message) {
+        super(message);
+    }
+}
@@ -1,11 +1,22 @@
 package handlers;
 
 import com.sun.net.httpserver.HttpExchange;
+import model.Task;
+import model.enums.Status;
+
 import java.io.IOException;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class BaseHttpHandler {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
     protected void sendText(HttpExchange exchange, String text, int statusCode) throws IOException {
         byte[] response = text.getBytes(StandardCharsets.UTF_8);
         exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
@@ -23,4 +34,64 @@ public class BaseHttpHandler {
         String responseText = "{\"Ошибка\":\"Задача пересекается по времени с другими задачами\"}";
         sendText(exchange, responseText, 406);
     }
+
+    protected void sendBadRequest(HttpExchange exchange) throws IOException {
+        String responseText = "{\"Ошибка\":\"Некорректные параметры запроса\"}";
+        sendText(exchange, responseText, 400);
+    }
+
+    protected Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /* Значение ?status= или null, если фильтр не задан. Неизвестный статус - IllegalArgumentException */
+    protected Status parseStatus(HttpExchange exchange) {
+        String status = parseQuery(exchange).get("status");
+        if (status == null || status.isEmpty()) {
+            return null;
+        }
+        return Status.valueOf(status.toUpperCase(Locale.ROOT));
+    }
+
+    /* Параметры ?after=&limit= или null, если страница не запрошена. Размер страницы ограничен
+    MAX_PAGE_SIZE, некорректные значения - IllegalArgumentException */
+    protected PageRequest parsePage(HttpExchange exchange) {
+        Map<String, String> params = parseQuery(exchange);
+        if (!params.containsKey("after") && !params.containsKey("limit")) {
+            return null;
+        }
+        int after = params.containsKey("after") ? Integer.parseInt(params.get("after")) : 0;
+        int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_PAGE_SIZE;
+        if (after < 0 || limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Некорректные параметры страницы");
+        }
+        return new PageRequest(after, limit);
+    }
+
+    /* Из выборки размером до limit + 1 строится страница: лишний элемент означает, что есть
+    следующая страница, и её курсором становится id последнего элемента текущей */
+    protected <T extends Task> Page<T> toPage(List<T> fetched, int limit) {
+        if (fetched.size() <= limit) {
+            return new Page<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new Page<>(items, items.getLast().getId());
+    }
+
+    protected record PageRequest(int after, int limit) {
+    }
+
+    protected record Page<T>(List<T> items, Integer nextCursor) {
+    }
 }
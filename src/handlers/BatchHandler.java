@@ -0,0 +1,96 @@
+package handlers;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpExchange;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import exceptions.TaskNotFoundException;
+import exceptions.TaskOverlapException;
+import managers.Managers;
+import managers.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchHandler extends BaseHttpHandler implements HttpHandler {
+
+    protected final Gson gson = Managers.getGson();
+    private final TaskManager manager;
+
+    public BatchHandler(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    /* Метод handle() - это переопределение абстрактного метода public abstract void handle()
+    интерфейса HttpHandler */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendNotFound(exchange);
+            return;
+        }
+        BatchRequest request;
+        try {
+            request = gson.fromJson(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8),
+                    BatchRequest.class);
+        } catch (JsonParseException exp) {
+            sendBadRequest(exchange);
+            return;
+        }
+        if (request == null || hasNulls(request.epics) || hasNulls(request.tasks) || hasNulls(request.subtasks)
+                || hasNulls(request.delete)) {
+            sendBadRequest(exchange);
+            return;
+        }
+        try {
+            sendText(exchange, gson.toJson(apply(request)), 201);
+        } catch (TaskOverlapException exp) {
+            sendHasIntersections(exchange);
+        } catch (TaskNotFoundException exp) {
+            sendNotFound(exchange);
+        } catch (IllegalArgumentException exp) {
+            sendBadRequest(exchange);
+        }
+    }
+
+    /* POST /batch {"epics": [...], "tasks": [...], "subtasks": [...], "delete": [id, ...]}.
+    Элементы с id 0 создаются, остальные обновляются. Весь пакет проверяется до первого изменения
+    и применяется и сохраняется одной операцией applyBatch: пересечение по времени - 406, отсутствующий
+    эпик или id - 404, прочие ошибки пакета - 400. В ответе - тот же пакет с выданными id */
+    private BatchRequest apply(BatchRequest request) {
+        List<Task> created = new ArrayList<>();
+        List<Task> updated = new ArrayList<>();
+        split(request.epics, created, updated);
+        split(request.tasks, created, updated);
+        split(request.subtasks, created, updated);
+
+        manager.applyBatch(created, updated, request.delete != null ? request.delete : List.of());
+        return request;
+    }
+
+    private static void split(List<? extends Task> items, List<Task> created, List<Task> updated) {
+        if (items == null) {
+            return;
+        }
+        for (Task item : items) {
+            (item.getId() == 0 ? created : updated).add(item);
+        }
+    }
+
+    private static boolean hasNulls(List<?> items) {
+        return items != null && items.contains(null);
+    }
+
+    private static class BatchRequest {
+        private List<Epic> epics;
+        private List<Task> tasks;
+        private List<Subtask> subtasks;
+        private List<Integer> delete;
+    }
+}
@@ -1,6 +1,7 @@
 package handlers;
 
 import com.sun.net.httpserver.HttpExchange;
+import model.enums.Status;
 import model.Epic;
 import managers.TaskManager;
 import model.Subtask;
@@ -57,7 +58,26 @@ public class EpicHandler extends TaskHandler {
     }
 
     private void handleGetEpics(HttpExchange exchange) throws IOException {
-        List<Epic> epics = manager.getAllEpics();
+        Status status;
+        PageRequest page;
+        try {
+            status = parseStatus(exchange);
+            page = parsePage(exchange);
+        } catch (IllegalArgumentException exp) {
+            sendBadRequest(exchange);
+            return;
+        }
+        /* Постраничная выдача идёт по id, а не по индексу статусов, поэтому вместе с ?status= не поддерживается */
+        if (page != null) {
+            if (status != null) {
+                sendBadRequest(exchange);
+                return;
+            }
+            List<Epic> fetched = manager.getEpicsPage(page.after(), page.limit() + 1);
+            sendText(exchange, gson.toJson(toPage(fetched, page.limit())), 200);
+            return;
+        }
+        List<Epic> epics = status == null ? manager.getAllEpics() : manager.getEpicsByStatus(status);
         String jsonResponse = gson.toJson(epics);
         sendText(exchange, jsonResponse, 200);
     }
@@ -24,8 +24,7 @@ public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         if ("GET".equals(exchange.getRequestMethod())) {
-            List<Task> history = manager.getHistory();
-            List<Integer> historyIds = history.stream().map(Task::getId).toList();
+            List<Integer> historyIds = manager.streamHistory().map(Task::getId).toList();
             String jsonResponse = gson.toJson(historyIds);
             sendText(exchange, jsonResponse, 200);
         } else {
@@ -8,7 +8,12 @@ import managers.TaskManager;
 import model.Task;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
 
@@ -24,12 +29,45 @@ public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         if ("GET".equals(exchange.getRequestMethod())) {
-            List<Task> prioritizedTasks = manager.getPrioritizedTasks();
-            List<Integer> prioritizedTaskIds = prioritizedTasks.stream().map(Task::getId).toList();
+            Stream<Task> prioritizedTasks;
+            try {
+                prioritizedTasks = findPrioritizedTasks(parseQuery(exchange));
+            } catch (DateTimeParseException | IllegalArgumentException exp) {
+                sendBadRequest(exchange);
+                return;
+            }
+            List<Integer> prioritizedTaskIds = prioritizedTasks.map(Task::getId).toList();
             String jsonResponse = gson.toJson(prioritizedTaskIds);
             sendText(exchange, jsonResponse, 200);
         } else {
             sendNotFound(exchange);
         }
     }
-}
\ No newline at end of file
+
+    /* /prioritized?from=&to=&limit= - задачи, пересекающиеся с [from, to); пропущенная граница диапазон
+    не ограничивает, поэтому from без to - всё, что ещё не закончилось к from. limit передаётся в менеджер,
+    и обход дерева интервалов останавливается на нём. Без from и to - приоритетный список целиком,
+    с задачами без времени в конце, из которого берутся первые limit */
+    private Stream<Task> findPrioritizedTasks(Map<String, String> params) {
+        LocalDateTime from = parseDateTime(params.get("from"));
+        LocalDateTime to = parseDateTime(params.get("to"));
+        int limit = Integer.MAX_VALUE;
+        if (params.containsKey("limit")) {
+            limit = Integer.parseInt(params.get("limit"));
+            if (limit < 0) {
+                throw new IllegalArgumentException("Отрицательный limit");
+            }
+        }
+        if (from != null || to != null) {
+            return manager.getTasksInRange(from, to, limit).stream();
+        }
+        return manager.streamPrioritizedTasks().limit(limit);
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME);
+    }
+}
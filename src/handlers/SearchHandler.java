@@ -0,0 +1,49 @@
+package handlers;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpExchange;
+import com.google.gson.Gson;
+import managers.Managers;
+import managers.TaskManager;
+import model.Task;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class SearchHandler extends BaseHttpHandler implements HttpHandler {
+
+    static final int DEFAULT_LIMIT = 100;
+
+    protected final Gson gson = Managers.getGson();
+    private final TaskManager manager;
+
+    public SearchHandler(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    /* GET /search?q=&limit= - задачи, эпики и подзадачи со всеми словами запроса в названии
+    или описании; группы слов можно разделять OR. Без limit возвращается не больше DEFAULT_LIMIT */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendNotFound(exchange);
+            return;
+        }
+        Map<String, String> params = parseQuery(exchange);
+        String query = params.get("q");
+        int limit;
+        try {
+            limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_LIMIT;
+        } catch (NumberFormatException exp) {
+            sendBadRequest(exchange);
+            return;
+        }
+        if (query == null || query.isBlank() || limit < 0) {
+            sendBadRequest(exchange);
+            return;
+        }
+        List<Task> found = manager.search(query, limit);
+        sendText(exchange, gson.toJson(found), 200);
+    }
+}
@@ -1,6 +1,7 @@
 package handlers;
 
 import com.sun.net.httpserver.HttpExchange;
+import model.enums.Status;
 import model.Subtask;
 import managers.TaskManager;
 
@@ -56,7 +57,26 @@ public class SubtaskHandler extends TaskHandler {
     }
 
     private void handleGetSubtasks(HttpExchange exchange) throws IOException {
-        List<Subtask> subtasks = manager.getAllSubtasks();
+        Status status;
+        PageRequest page;
+        try {
+            status = parseStatus(exchange);
+            page = parsePage(exchange);
+        } catch (IllegalArgumentException exp) {
+            sendBadRequest(exchange);
+            return;
+        }
+        /* Постраничная выдача идёт по id, а не по индексу статусов, поэтому вместе с ?status= не поддерживается */
+        if (page != null) {
+            if (status != null) {
+                sendBadRequest(exchange);
+                return;
+            }
+            List<Subtask> fetched = manager.getSubtasksPage(page.after(), page.limit() + 1);
+            sendText(exchange, gson.toJson(toPage(fetched, page.limit())), 200);
+            return;
+        }
+        List<Subtask> subtasks = status == null ? manager.getAllSubtasks() : manager.getSubtasksByStatus(status);
         String jsonResponse = gson.toJson(subtasks);
         sendText(exchange, jsonResponse, 200);
     }
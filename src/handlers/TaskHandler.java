@@ -4,6 +4,7 @@ import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
 import com.google.gson.Gson;
 import managers.Managers;
+import model.enums.Status;
 import model.Task;
 import managers.TaskManager;
 
@@ -62,7 +63,26 @@ public class TaskHandler extends BaseHttpHandler implements HttpHandler {
     }
 
     private void handleGetTasks(HttpExchange exchange) throws IOException {
-        List<Task> tasks = manager.getAllTasks();
+        Status status;
+        PageRequest page;
+        try {
+            status = parseStatus(exchange);
+            page = parsePage(exchange);
+        } catch (IllegalArgumentException exp) {
+            sendBadRequest(exchange);
+            return;
+        }
+        /* Постраничная выдача идёт по id, а не по индексу статусов, поэтому вместе с ?status= не поддерживается */
+        if (page != null) {
+            if (status != null) {
+                sendBadRequest(exchange);
+                return;
+            }
+            List<Task> fetched = manager.getTasksPage(page.after(), page.limit() + 1);
+            sendText(exchange, gson.toJson(toPage(fetched, page.limit())), 200);
+            return;
+        }
+        List<Task> tasks = status == null ? manager.getAllTasks() : manager.getTasksByStatus(status);
         String jsonResponse = gson.toJson(tasks);
         sendText(exchange, jsonResponse, 200);
     }
@@ -81,8 +101,11 @@ public class TaskHandler extends BaseHttpHandler implements HttpHandler {
         InputStream inputStream = exchange.getRequestBody();
         Task task = gson.fromJson(new InputStreamReader(inputStream), Task.class);
         if (task.getId() == 0) {
-            manager.createTask(task);
-            sendText(exchange, gson.toJson(task), 201);
+            if (manager.createTask(task) != null) {
+                sendText(exchange, gson.toJson(task), 201);
+            } else {
+                sendHasIntersections(exchange);
+            }
         } else {
             try {
                 manager.updateTask(task);
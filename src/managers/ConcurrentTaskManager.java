@@ -0,0 +1,317 @@
+package managers;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.enums.Status;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/* Потокобезопасный менеджер для HttpTaskServer с несколькими потоками.
+Операции, меняющие общие индексы (приоритетный список, дерево интервалов, агрегаты эпиков,
+индексы статусов и слов), берут блокировку записи. Чтения идут параллельно под блокировкой чтения.
+Точечные операции дополнительно берут блокировку полосы по id, поэтому переименование эпика
+идёт под блокировкой чтения и полосой, не останавливая остальных. Оно меняет только запись эпика
+и индекс слов, которые закрыты отдельной блокировкой индекса: её запись берёт переименование,
+а чтение - поиск и выборки эпиков. История синхронизируется отдельно, id выдаёт IdAllocator без блокировок */
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+
+    static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes;
+
+    public ConcurrentTaskManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public ConcurrentTaskManager(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        historyManager = new SynchronizedHistoryManager(historyManager);
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return read(super::getAllTasks);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return readIndexed(super::getAllEpics);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return read(super::getAllSubtasks);
+    }
+
+    /* Ленивый обход пришлось бы держать под блокировкой чтения до конца потока, поэтому под ней
+    снимается только массив ссылок, без промежуточного списка */
+    @Override
+    public Stream<Task> streamTasks() {
+        return Arrays.stream(read(() -> super.streamTasks().toArray(Task[]::new)));
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return Arrays.stream(readIndexed(() -> super.streamEpics().toArray(Epic[]::new)));
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return Arrays.stream(read(() -> super.streamSubtasks().toArray(Subtask[]::new)));
+    }
+
+    @Override
+    public List<Task> getTasksPage(int after, int limit) {
+        return read(() -> super.getTasksPage(after, limit));
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int after, int limit) {
+        return readIndexed(() -> super.getEpicsPage(after, limit));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int after, int limit) {
+        return read(() -> super.getSubtasksPage(after, limit));
+    }
+
+    @Override
+    public List<Subtask> getSubtaskList(Epic epic) {
+        return readIndexed(() -> super.getSubtaskList(epic));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(super::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(super::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(super::deleteAllSubtasks);
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return readPoint(id, () -> super.getTaskById(id));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return readPoint(id, () -> super.getEpicById(id));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return readPoint(id, () -> super.getSubtaskById(id));
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return writeAndGet(() -> super.createTask(task));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return writeAndGet(() -> super.createEpic(epic));
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        return writeAndGet(() -> super.createSubtask(subtask));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> super.updateTask(task));
+    }
+
+    /* Переименование не трогает ни расписание, ни агрегаты, поэтому хватает полосы по id,
+    а запись эпика и индекс слов меняются в renameEpic под блокировкой индекса */
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null) {
+            super.updateEpic(null);
+            return;
+        }
+        readPoint(epic.getId(), () -> {
+            super.updateEpic(epic);
+            return null;
+        });
+    }
+
+    /* Читатель держит полученный эпик и после снятия блокировок, поэтому эпик не меняется на месте:
+    переименовывается копия и подменяет его в хранилище и в истории, на том же месте просмотров */
+    @Override
+    protected void renameEpic(Epic saved, Epic epic) {
+        Epic updated = new Epic(saved);
+        indexLock.writeLock().lock();
+        try {
+            super.renameEpic(updated, epic);
+            epics.put(updated.getId(), updated);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        historyManager.replace(updated);
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        write(() -> super.updateSubtask(subtask));
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        write(() -> super.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        write(() -> super.deleteEpicById(id));
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        write(() -> super.deleteSubtaskById(id));
+    }
+
+    /* createAll, updateAll и deleteAll сводятся к applyBatch, поэтому блокировка берётся здесь один раз */
+    @Override
+    public List<Task> applyBatch(List<? extends Task> created, List<? extends Task> updated,
+                                 Collection<Integer> deleted) {
+        return writeAndGet(() -> super.applyBatch(created, updated, deleted));
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return read(() -> super.getTasksByStatus(status));
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return readIndexed(() -> super.getEpicsByStatus(status));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return read(() -> super.getSubtasksByStatus(status));
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        return readIndexed(() -> super.search(query, limit));
+    }
+
+    @Override
+    public Status calculateStatus(Epic epic) {
+        return read(() -> super.calculateStatus(epic));
+    }
+
+    @Override
+    boolean hasEpic(int id) {
+        return read(() -> super.hasEpic(id));
+    }
+
+    @Override
+    boolean isUpdatable(Task item) {
+        return read(() -> super.isUpdatable(item));
+    }
+
+    @Override
+    List<Integer> overlappingIds(Task task) {
+        return read(() -> super.overlappingIds(task));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(super::getPrioritizedTasks);
+    }
+
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return Arrays.stream(read(() -> super.streamPrioritizedTasks().toArray(Task[]::new)));
+    }
+
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int limit) {
+        return read(() -> super.getTasksInRange(from, to, limit));
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        return read(() -> super.getNextTasks(after, limit));
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        return readIndexed(() -> super.getEpicSubtasks(epicId));
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T readPoint(int id, Supplier<T> action) {
+        ReentrantLock stripe = stripes[(id ^ (id >>> 16)) & (stripes.length - 1)];
+        lock.readLock().lock();
+        stripe.lock();
+        try {
+            return action.get();
+        } finally {
+            stripe.unlock();
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T readIndexed(Supplier<T> action) {
+        lock.readLock().lock();
+        indexLock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            indexLock.readLock().unlock();
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T writeAndGet(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
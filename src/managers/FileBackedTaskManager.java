@@ -5,218 +5,834 @@ import exceptions.ManagerSaveException;
 import model.Epic;
 import model.Subtask;
 import model.Task;
-import model.enums.Status;
 import model.enums.TaskType;
+import storage.BinaryTaskFormat;
+import storage.BlockCompressedInputStream;
+import storage.BlockCompressedOutputStream;
+import storage.BlockCompression;
+import storage.CsvTaskFormat;
+import storage.Durability;
+import storage.HistoryLog;
+import storage.IdRangeFile;
+import storage.JournalOperation;
+import storage.JournalRecord;
+import storage.JournalWriter;
+import storage.ParallelCsvLoader;
+import storage.SlotFile;
+import storage.SnapshotFormat;
+import storage.StorageMode;
+import storage.StorageSettings;
+import storage.TaskJournal;
+import storage.WriteMode;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.Map;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
 
-public class FileBackedTaskManager extends InMemoryTaskManager implements TaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements TaskManager, AutoCloseable {
+
+    Logger fileLogger = Logger.getLogger(getClass().getName());
 
     private final File file;
+    private final StorageSettings settings;
+    private final TaskJournal journal;
+    private final JournalWriter writer;
+    private final HistoryLog historyLog;
+    private final SlotFile slotFile;
+    private final Set<Integer> dirtyIds = new HashSet<>();
+    private final ExecutorService compactor;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final Object snapshotLock = new Object();
+    private int historyViews;
+    private int historyViewsBeforeRewrite = MIN_HISTORY_VIEWS_BEFORE_REWRITE;
 
-    static final String HEADER = "id,type,name,status,description,epic,startTime,duration,endTime\n";
+    static final String HEADER = CsvTaskFormat.HEADER + "\n";
+    static final String JOURNAL_SUFFIX = ".journal";
+    static final String HISTORY_SUFFIX = ".history";
+    static final String IDS_SUFFIX = ".ids";
+    static final String TEMP_SUFFIX = ".tmp";
+    static final int MIN_HISTORY_VIEWS_BEFORE_REWRITE = 1024;
 
     public FileBackedTaskManager(File file) {
+        this(file, StorageMode.SNAPSHOT);
+    }
+
+    public FileBackedTaskManager(File file, StorageMode mode) {
+        this(file, new StorageSettings(mode));
+    }
+
+    public FileBackedTaskManager(File file, SnapshotFormat format) {
+        this(file, new StorageSettings(StorageMode.SNAPSHOT));
+        settings.setSnapshotFormat(format);
+    }
+
+    public FileBackedTaskManager(File file, StorageSettings settings) {
         this.file = file;
+        this.settings = settings;
+        if (settings.getMode() == StorageMode.JOURNAL) {
+            journal = new TaskJournal(new File(file.getPath() + JOURNAL_SUFFIX), settings);
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            writer = settings.getWriteMode() == WriteMode.INLINE ? null
+                    : new JournalWriter(journal, settings.getWriteQueueCapacity(),
+                    settings.getWriteMode() == WriteMode.DURABLE, this::checkCompaction);
+        } else {
+            journal = null;
+            compactor = null;
+            writer = null;
+        }
+        slotFile = settings.getMode() == StorageMode.SLOTS
+                ? new SlotFile(file, settings.getSlotSize(), settings.getDurability() != Durability.ASYNC) : null;
+        historyLog = settings.isHistoryPersisted() ? new HistoryLog(new File(file.getPath() + HISTORY_SUFFIX)) : null;
+        if (settings.isIdRangesLeased()) {
+            idAllocator = new IdAllocator(new IdRangeFile(new File(file.getPath() + IDS_SUFFIX)),
+                    settings.getIdBlockSize());
+        }
     }
 
     @Override
     public void deleteAllTasks() {
+        markDirty(tasks.keySet());
         super.deleteAllTasks();
-        save();
+        if (journal == null) {
+            save();
+        } else {
+            append(JournalOperation.CLEAR, TaskType.TASK.name());
+        }
     }
 
     @Override
     public void deleteAllEpics() {
+        markDirty(epics.keySet());
+        markDirty(subtasks.keySet());
         super.deleteAllEpics();
-        save();
+        if (journal == null) {
+            save();
+        } else {
+            append(JournalOperation.CLEAR, TaskType.EPIC.name());
+        }
     }
 
     @Override
     public void deleteAllSubtasks() {
+        markDirty(subtasks.keySet());
+        markDirty(epics.keySet());
         super.deleteAllSubtasks();
-        save();
+        if (journal == null) {
+            save();
+        } else {
+            append(JournalOperation.CLEAR, TaskType.SUBTASK.name());
+        }
     }
 
     @Override
     public Task getTaskById(int id) {
         Task task = super.getTaskById(id);
-        save();
+        if (task != null) {
+            recordView(id);
+        }
         return task;
     }
 
     @Override
     public Epic getEpicById(int id) {
         Epic epic = super.getEpicById(id);
-        save();
+        if (epic != null) {
+            recordView(id);
+        }
         return epic;
     }
 
     @Override
     public Subtask getSubtaskById(int id) {
         Subtask subtask = super.getSubtaskById(id);
-        save();
+        if (subtask != null) {
+            recordView(id);
+        }
         return subtask;
     }
 
     @Override
     public Task createTask(Task task) {
         Task newTask = super.createTask(task);
-        save();
+        if (newTask != null) {
+            markDirty(newTask.getId());
+        }
+        if (journal == null) {
+            save();
+        } else if (newTask != null) {
+            append(JournalOperation.CREATE, CsvTaskFormat.format(newTask));
+        }
         return newTask;
     }
 
     @Override
     public Epic createEpic(Epic epic) {
         Epic newEpic = super.createEpic(epic);
-        save();
+        if (newEpic != null) {
+            markDirty(newEpic.getId());
+        }
+        if (journal == null) {
+            save();
+        } else if (newEpic != null) {
+            append(JournalOperation.CREATE, CsvTaskFormat.format(newEpic));
+        }
         return newEpic;
     }
 
     @Override
     public Subtask createSubtask(Subtask subtask) {
         Subtask newSubtask = super.createSubtask(subtask);
-        save();
+        if (newSubtask != null) {
+            markDirty(newSubtask.getId());
+            markDirty(newSubtask.getEpicId());
+        }
+        if (journal == null) {
+            save();
+        } else if (newSubtask != null) {
+            append(JournalOperation.CREATE, CsvTaskFormat.format(newSubtask));
+            append(JournalOperation.UPDATE, CsvTaskFormat.format(epics.get(newSubtask.getEpicId())));
+        }
         return newSubtask;
     }
 
     @Override
     public void updateTask(Task task) {
         super.updateTask(task);
-        save();
+        if (task != null && tasks.containsKey(task.getId())) {
+            markDirty(task.getId());
+        }
+        if (journal == null) {
+            save();
+        } else if (task != null && tasks.containsKey(task.getId())) {
+            append(JournalOperation.UPDATE, CsvTaskFormat.format(tasks.get(task.getId())));
+        }
     }
 
     @Override
     public void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        if (epic != null && epics.containsKey(epic.getId())) {
+            markDirty(epic.getId());
+        }
+        if (journal == null) {
+            save();
+        } else if (epic != null && epics.containsKey(epic.getId())) {
+            append(JournalOperation.UPDATE, CsvTaskFormat.format(epics.get(epic.getId())));
+        }
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
         super.updateSubtask(subtask);
-        save();
+        if (subtask != null && subtasks.containsKey(subtask.getId())) {
+            markDirty(subtask.getId());
+            markDirty(subtasks.get(subtask.getId()).getEpicId());
+        }
+        if (journal == null) {
+            save();
+        } else if (subtask != null && subtasks.containsKey(subtask.getId())) {
+            Subtask savedSubtask = subtasks.get(subtask.getId());
+            append(JournalOperation.UPDATE, CsvTaskFormat.format(savedSubtask));
+            append(JournalOperation.UPDATE, CsvTaskFormat.format(epics.get(savedSubtask.getEpicId())));
+        }
     }
 
     @Override
     public void deleteTaskById(int id) {
+        boolean exists = tasks.containsKey(id);
+        if (exists) {
+            markDirty(id);
+        }
         super.deleteTaskById(id);
-        save();
+        if (journal == null) {
+            save();
+        } else if (exists) {
+            append(JournalOperation.DELETE, TaskType.TASK.name() + "," + id);
+        }
     }
 
     @Override
     public void deleteEpicById(int id) {
+        boolean exists = epics.containsKey(id);
+        if (exists) {
+            markDirty(id);
+            markDirty(epics.get(id).getEpicSubtasks());
+        }
         super.deleteEpicById(id);
-        save();
+        if (journal == null) {
+            save();
+        } else if (exists) {
+            append(JournalOperation.DELETE, TaskType.EPIC.name() + "," + id);
+        }
     }
 
     @Override
     public void deleteSubtaskById(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask != null) {
+            markDirty(id);
+            markDirty(subtask.getEpicId());
+        }
         super.deleteSubtaskById(id);
-        save();
+        if (journal == null) {
+            save();
+        } else if (subtask != null) {
+            append(JournalOperation.DELETE, TaskType.SUBTASK.name() + "," + id);
+            append(JournalOperation.UPDATE, CsvTaskFormat.format(epics.get(subtask.getEpicId())));
+        }
+    }
+
+    /* Пакет сохраняется один раз: один снимок, одна пачка слотов или одна запись в журнал,
+    куда каждый затронутый эпик попадает один раз. createAll, updateAll и deleteAll сводятся
+    к applyBatch, поэтому отдельно не переопределяются. Удаления описываются до применения,
+    пока задачи ещё на месте, а созданные и обновлённые - после, с выданными id и статусами */
+    @Override
+    public List<Task> applyBatch(List<? extends Task> created, List<? extends Task> updated,
+                                 Collection<Integer> deleted) {
+        List<JournalRecord> deletions = new ArrayList<>();
+        List<Integer> deletedIds = new ArrayList<>();
+        Set<Integer> epicIds = new LinkedHashSet<>();
+        for (Integer id : deleted) {
+            if (tasks.containsKey(id)) {
+                deletions.add(new JournalRecord(JournalOperation.DELETE, TaskType.TASK.name() + "," + id));
+            } else if (epics.containsKey(id)) {
+                deletedIds.addAll(epics.get(id).getEpicSubtasks());
+                deletions.add(new JournalRecord(JournalOperation.DELETE, TaskType.EPIC.name() + "," + id));
+            } else if (subtasks.containsKey(id)) {
+                epicIds.add(subtasks.get(id).getEpicId());
+                deletions.add(new JournalRecord(JournalOperation.DELETE, TaskType.SUBTASK.name() + "," + id));
+            } else {
+                continue;
+            }
+            deletedIds.add(id);
+        }
+
+        List<Task> result = super.applyBatch(created, updated, deleted);
+
+        List<JournalRecord> records = new ArrayList<>();
+        for (Task task : result) {
+            markDirty(task.getId());
+            records.add(new JournalRecord(JournalOperation.CREATE, CsvTaskFormat.format(task)));
+            if (task instanceof Subtask subtask) {
+                epicIds.add(subtask.getEpicId());
+            }
+        }
+        for (Task item : updated) {
+            Task saved;
+            if (item instanceof Epic) {
+                saved = epics.get(item.getId());
+            } else if (item instanceof Subtask subtask) {
+                saved = subtasks.get(subtask.getId());
+                epicIds.add(subtask.getEpicId());
+            } else {
+                saved = tasks.get(item.getId());
+            }
+            if (saved == null) {
+                continue;
+            }
+            markDirty(saved.getId());
+            records.add(new JournalRecord(JournalOperation.UPDATE, CsvTaskFormat.format(saved)));
+        }
+        markDirty(deletedIds);
+        records.addAll(deletions);
+        epicIds.retainAll(epics.keySet());
+        persistBatch(records, epicIds);
+        return result;
+    }
+
+    private void persistBatch(List<JournalRecord> records, Set<Integer> epicIds) {
+        markDirty(epicIds);
+        if (journal == null) {
+            save();
+            return;
+        }
+        for (Integer epicId : epicIds) {
+            records.add(new JournalRecord(JournalOperation.UPDATE, CsvTaskFormat.format(epics.get(epicId))));
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        if (writer != null) {
+            writer.submitAll(records);
+            return;
+        }
+        journal.appendAll(records);
+        checkCompaction();
     }
 
+    @Override
+    public void close() {
+        if (historyLog != null) {
+            historyLog.close();
+        }
+        if (slotFile != null) {
+            slotFile.close();
+        }
+        if (journal == null) {
+            return;
+        }
+        if (writer != null) {
+            writer.close();
+        }
+        compactor.shutdown();
+        try {
+            if (!compactor.awaitTermination(1, TimeUnit.MINUTES)) {
+                fileLogger.warning("Компакция журнала не завершилась за отведённое время");
+            }
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    /* В режиме журнала save() снимает снимок текущего состояния и удаляет покрытые им сегменты */
     protected void save() {
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write(HEADER);
-            for (Map.Entry<Integer, Task> entry : tasks.entrySet()) {
-                writer.write(entry.getValue().toString() + "\n");
+        if (slotFile != null) {
+            flushDirty();
+            return;
+        }
+        if (journal == null) {
+            writeSnapshot(file, settings.getSnapshotFormat(), false);
+            return;
+        }
+        synchronized (snapshotLock) {
+            journal.rotate();
+            List<File> coveredSegments = journal.sealedSegments();
+            replaceSnapshot();
+            TaskJournal.delete(coveredSegments);
+        }
+    }
+
+    private void markDirty(int id) {
+        if (slotFile != null) {
+            dirtyIds.add(id);
+        }
+    }
+
+    private void markDirty(Collection<Integer> ids) {
+        if (slotFile != null) {
+            dirtyIds.addAll(ids);
+        }
+    }
+
+    /* В режиме слотов перезаписываются только слоты записей, изменённых с прошлого сброса.
+    Id, которого больше нет ни в одной из коллекций, означает удаление записи */
+    private void flushDirty() {
+        if (dirtyIds.isEmpty()) {
+            return;
+        }
+        List<Task> changed = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        for (Integer id : dirtyIds) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = epics.get(id);
+            }
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            if (task != null) {
+                changed.add(task);
+            } else {
+                removed.add(id);
+            }
+        }
+        slotFile.write(changed, removed);
+        dirtyIds.clear();
+    }
+
+    /* Чтение не трогает файл данных: просмотр уходит в отдельный журнал истории, который
+    переписывается текущим порядком истории не чаще, чем раз в 2 * (размер истории) просмотров */
+    private void recordView(int id) {
+        if (historyLog == null) {
+            return;
+        }
+        historyLog.recordView(id);
+        if (++historyViews < historyViewsBeforeRewrite) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Task task : getHistory()) {
+            ids.add(task.getId());
+        }
+        historyLog.rewrite(ids);
+        historyViews = 0;
+        historyViewsBeforeRewrite = Math.max(MIN_HISTORY_VIEWS_BEFORE_REWRITE, 2 * ids.size());
+    }
+
+    /* При наличии потока записи запрос только ставит изменение в очередь: запись, fsync
+    и проверка порогов компакции выполняются в потоке записи */
+    private void append(JournalOperation operation, String payload) {
+        if (writer != null) {
+            writer.submit(new JournalRecord(operation, payload));
+            return;
+        }
+        journal.append(operation, payload);
+        checkCompaction();
+    }
+
+    private void checkCompaction() {
+        if (journal.getActiveBytes() >= settings.getCompactionBytes()
+                || journal.getActiveRecords() >= settings.getCompactionRecords()) {
+            journal.rotate();
+            scheduleCompaction();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (!compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        compactor.execute(() -> {
+            compactionScheduled.set(false);
+            try {
+                compact();
+            } catch (FileLoadException | RuntimeException exp) {
+                fileLogger.warning("Не удалось выполнить компакцию журнала: " + exp.getMessage());
+            }
+        });
+    }
+
+    /* Снимок строится в фоне из предыдущего снимка и закрытых сегментов журнала, поэтому
+    потоки запросов не блокируются. Повторное применение сегментов идемпотентно, так что сбой
+    между заменой снимка и удалением сегментов не нарушает восстановление */
+    private void compact() throws FileLoadException {
+        synchronized (snapshotLock) {
+            List<File> segments = journal.sealedSegments();
+            if (segments.isEmpty()) {
+                return;
+            }
+            FileBackedTaskManager snapshot = new FileBackedTaskManager(file, snapshotSettings());
+            if (file.exists()) {
+                snapshot.loadSnapshot();
+            }
+            TaskJournal.replay(segments, snapshot::applyJournalRecord);
+            snapshot.replaceSnapshot();
+            TaskJournal.delete(segments);
+        }
+    }
+
+    /* Вспомогательный менеджер компакции пишет снимок с теми же форматом и сжатием, что и основной,
+    но сам не ведёт журнал и историю */
+    private StorageSettings snapshotSettings() {
+        StorageSettings snapshotSettings = settings.copy(StorageMode.SNAPSHOT);
+        snapshotSettings.setHistoryPersisted(false);
+        snapshotSettings.setIdRangesLeased(false);
+        return snapshotSettings;
+    }
+
+    private void replaceSnapshot() {
+        File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+        writeSnapshot(tempFile, settings.getSnapshotFormat(), true);
+        try {
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exp) {
+            throw new ManagerSaveException("Не удалось заменить файл снимка", exp);
+        }
+    }
+
+    public void exportToCsv(File target) {
+        writeSnapshot(target, SnapshotFormat.CSV, false);
+    }
+
+    /* Снимок, который подменяется переименованием, сбрасывается на диск до переименования,
+    иначе после сбоя можно получить пустой файл на месте старого снимка */
+    private void writeSnapshot(File target, SnapshotFormat format, boolean force) {
+        try (FileOutputStream output = new FileOutputStream(target)) {
+            OutputStream buffered = new BufferedOutputStream(output);
+            BlockCompressedOutputStream compressed = settings.isCompressed()
+                    ? new BlockCompressedOutputStream(buffered, settings.getCompressionBlockSize()) : null;
+            OutputStream snapshot = compressed != null ? compressed : buffered;
+            if (format == SnapshotFormat.BINARY) {
+                writeBinary(snapshot);
+            } else {
+                writeCsv(snapshot);
             }
-            for (Map.Entry<Integer, Epic> entry : epics.entrySet()) {
-                writer.write(entry.getValue().toString() + "\n");
+            if (compressed != null) {
+                compressed.finish();
             }
-            for (Map.Entry<Integer, Subtask> entry : subtasks.entrySet()) {
-                writer.write(entry.getValue().toString() + "\n");
+            buffered.flush();
+            if (force) {
+                output.getFD().sync();
             }
         } catch (IOException exp) {
             throw new ManagerSaveException("Произошла ошибка записи в файл", exp);
         }
     }
 
+    private void writeCsv(OutputStream output) throws IOException {
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        writer.write(HEADER);
+        for (Task task : tasks.values()) {
+            writer.write(CsvTaskFormat.format(task) + "\n");
+        }
+        for (Epic epic : epics.values()) {
+            writer.write(CsvTaskFormat.format(epic) + "\n");
+        }
+        for (Subtask subtask : subtasks.values()) {
+            writer.write(CsvTaskFormat.format(subtask) + "\n");
+        }
+        writer.flush();
+    }
+
+    private void writeBinary(OutputStream output) throws IOException {
+        BinaryTaskFormat.writeHeader(output);
+        for (Task task : tasks.values()) {
+            BinaryTaskFormat.writeTask(output, task);
+        }
+        for (Epic epic : epics.values()) {
+            BinaryTaskFormat.writeTask(output, epic);
+        }
+        for (Subtask subtask : subtasks.values()) {
+            BinaryTaskFormat.writeTask(output, subtask);
+        }
+        BinaryTaskFormat.writeEnd(output);
+    }
+
     protected Task parseFromString(String value) {
-        Task parsedTask;
-        String[] parts = value.split(",");
-        int id = Integer.parseInt(parts[0]);
-        TaskType taskType = TaskType.valueOf(parts[1]);
-        String name = parts[2];
-        Status status = Status.valueOf(parts[3]);
-        String description = parts[4];
-        LocalDateTime startTime = parts[6].equals("null") ? null : LocalDateTime.parse(parts[6]);
-        Duration duration = parts[7].equals("null") ? null : Duration.parse(parts[7]);
-        LocalDateTime endTime = parts[8].equals("null") ? null : LocalDateTime.parse(parts[8]);
-
-        switch (taskType) {
-            case TASK:
-                parsedTask = new Task(id, name, description);
-                parsedTask.setStatus(status);
-                parsedTask.setStartTime(startTime);
-                parsedTask.setDuration(duration);
-                prioritizedTasks.add(parsedTask);
-                break;
+        return CsvTaskFormat.parse(value);
+    }
 
-            case EPIC:
-                parsedTask = new Epic(id, name, description);
-                parsedTask.setStatus(status);
-                parsedTask.setStartTime(startTime);
-                parsedTask.setDuration(duration);
-                parsedTask.setEndTime(endTime);
-                break;
+    protected FileBackedTaskManager loadFromFile(File file) throws FileLoadException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, settings);
+        if (manager.slotFile != null) {
+            manager.restoreAll(manager.slotFile.load());
+        } else if (manager.journal == null || file.exists()) {
+            manager.loadSnapshot();
+        }
+        if (manager.journal != null) {
+            int records = manager.journal.replay(manager::applyJournalRecord);
+            long bytes = manager.journal.sealedSegments().stream().mapToLong(File::length).sum();
+            if (records >= settings.getCompactionRecords() || bytes >= settings.getCompactionBytes()) {
+                manager.scheduleCompaction();
+            }
+        }
+        if (manager.historyLog != null) {
+            manager.restoreHistory();
+        }
+        manager.idAllocator.skipTo(manager.maxLoadedId() + 1);
+        return manager;
+    }
 
-            case SUBTASK:
-                int epicId = Integer.parseInt(parts[5]);
-                parsedTask = new Subtask(id, name, description, epicId);
-                parsedTask.setStatus(status);
-                parsedTask.setStartTime(startTime);
-                parsedTask.setDuration(duration);
-                prioritizedTasks.add(parsedTask);
-                break;
+    /* Формат снимка определяется по сигнатуре, поэтому CSV-файл можно загрузить (импортировать)
+    в менеджер с бинарными снимками и наоборот. Сжатый снимок распаковывается потоком,
+    без промежуточного файла */
+    private void loadSnapshot() throws FileLoadException {
+        try {
+            byte[] prefix = readPrefix(new FileInputStream(file));
+            if (BlockCompression.hasMagic(prefix, prefix.length)) {
+                try (InputStream input = new BufferedInputStream(
+                        new BlockCompressedInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+                    input.mark(prefix.length);
+                    byte[] innerPrefix = input.readNBytes(prefix.length);
+                    input.reset();
+                    if (BinaryTaskFormat.hasMagic(innerPrefix, innerPrefix.length)) {
+                        loadBinary(input);
+                    } else {
+                        loadCsv(input);
+                    }
+                }
+            } else if (BinaryTaskFormat.hasMagic(prefix, prefix.length)) {
+                try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+                    loadBinary(input);
+                }
+            } else {
+                restoreAll(new ParallelCsvLoader().load(file));
+            }
+        } catch (FileNotFoundException exp) {
+            throw new FileLoadException("Файл не найден", exp);
+        } catch (IOException exp) {
+            throw new FileLoadException("Произошла ошибка чтения из файла", exp);
+        }
+    }
 
-            default:
-                throw new ManagerSaveException("Неизвестный тип задачи: " + taskType);
+    private static byte[] readPrefix(InputStream input) throws IOException {
+        try (input) {
+            return input.readNBytes(4);
         }
-        return parsedTask;
     }
 
-    protected FileBackedTaskManager loadFromFile(File file) throws FileLoadException {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            while (reader.ready()) {
-                String line = reader.readLine();
-                if (line.isEmpty() || line.contains("id")) {
-                    continue;
+    private void loadCsv(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (line != null && !CsvTaskFormat.HEADER.equals(line.strip())) {
+            throw new IOException("Файл не начинается с заголовка CSV");
+        }
+        List<Task> loaded = new ArrayList<>();
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                loaded.add(CsvTaskFormat.parse(line));
+            }
+        }
+        restoreAll(loaded);
+    }
+
+    private void restoreAll(List<Task> loaded) {
+        List<Task> loadedSubtasks = new ArrayList<>();
+        for (Task task : loaded) {
+            if (task.getType() == TaskType.SUBTASK) {
+                loadedSubtasks.add(task);
+            } else {
+                restore(task);
+            }
+        }
+        for (Task subtask : loadedSubtasks) {
+            restore(subtask);
+        }
+    }
+
+    private void loadBinary(InputStream input) throws IOException {
+        BinaryTaskFormat.readHeader(input);
+        Task task;
+        while ((task = BinaryTaskFormat.readTask(input)) != null) {
+            restore(task);
+        }
+    }
+
+    /* Файл данных мог быть записан без отметки id (старой версией или вручную),
+    поэтому после загрузки новые id начинаются не ниже максимального загруженного */
+    private int maxLoadedId() {
+        int maxId = 0;
+        for (Integer id : tasks.keySet()) {
+            maxId = Math.max(maxId, id);
+        }
+        for (Integer id : epics.keySet()) {
+            maxId = Math.max(maxId, id);
+        }
+        for (Integer id : subtasks.keySet()) {
+            maxId = Math.max(maxId, id);
+        }
+        return maxId;
+    }
+
+    private void restoreHistory() throws FileLoadException {
+        for (Integer id : historyLog.load()) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = epics.get(id);
+            }
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            if (task != null) {
+                historyManager.add(task);
+            }
+        }
+    }
+
+    private void applyJournalRecord(JournalOperation operation, String payload) {
+        switch (operation) {
+            case CREATE:
+            case UPDATE:
+                restore(parseFromString(payload));
+                break;
+
+            case DELETE:
+                String[] parts = payload.split(",");
+                int id = Integer.parseInt(parts[1]);
+                switch (TaskType.valueOf(parts[0])) {
+                    case TASK:
+                        super.deleteTaskById(id);
+                        break;
+                    case EPIC:
+                        super.deleteEpicById(id);
+                        break;
+                    case SUBTASK:
+                        super.deleteSubtaskById(id);
+                        break;
                 }
-                Task loadedTask = manager.parseFromString(line);
-                int id = loadedTask.getId();
-                switch (loadedTask.getType()) {
+                break;
+
+            case CLEAR:
+                switch (TaskType.valueOf(payload)) {
                     case TASK:
-                        manager.tasks.put(id, loadedTask);
+                        super.deleteAllTasks();
                         break;
                     case EPIC:
-                        manager.epics.put(id, (Epic) loadedTask);
+                        super.deleteAllEpics();
                         break;
                     case SUBTASK:
-                        Subtask subtask = (Subtask) loadedTask;
-                        manager.subtasks.put(id, subtask);
-                        Epic epic = manager.epics.get(subtask.getEpicId());
-                        if (epic != null) {
-                            epic.addSubtask(subtask.getId());
-                        }
+                        super.deleteAllSubtasks();
                         break;
                 }
-            }
-        } catch (FileNotFoundException exp) {
-            throw new FileLoadException("Файл не найден", exp);
-        } catch (IOException exp) {
-            throw new FileLoadException("Произошла ошибка чтения из файла", exp);
+                break;
+        }
+    }
+
+    /* Восстановление работает как upsert: повторная запись задачи с тем же id заменяет прежнюю,
+    а для эпика обновляются только поля, чтобы не потерять список его подзадач */
+    private void restore(Task task) {
+        int id = task.getId();
+        switch (task.getType()) {
+            case TASK:
+                Task previousTask = tasks.put(id, task);
+                if (previousTask != null) {
+                    removeFromSchedule(previousTask);
+                }
+                addToSchedule(task);
+                indexItem(task);
+                break;
+
+            case EPIC:
+                Epic savedEpic = epics.get(id);
+                if (savedEpic == null) {
+                    epics.put(id, (Epic) task);
+                } else {
+                    savedEpic.setName(task.getName());
+                    savedEpic.setDescription(task.getDescription());
+                    savedEpic.setStatus(task.getStatus());
+                    savedEpic.setStartTime(task.getStartTime());
+                    savedEpic.setDuration(task.getDuration());
+                    savedEpic.setEndTime(task.getEndTime());
+                }
+                indexItem(epics.get(id));
+                break;
+
+            case SUBTASK:
+                Subtask subtask = (Subtask) task;
+                Subtask previousSubtask = subtasks.put(id, subtask);
+                if (previousSubtask != null) {
+                    removeFromSchedule(previousSubtask);
+                }
+                addToSchedule(subtask);
+                indexItem(subtask);
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic != null) {
+                    if (previousSubtask == null) {
+                        epic.addSubtask(id);
+                    }
+                    countSubtask(epic, subtask);
+                }
+                break;
         }
-        return manager;
     }
 }
@@ -3,6 +3,7 @@ package managers;
 import model.Task;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface HistoryManager {
 
@@ -10,5 +11,12 @@ public interface HistoryManager {
 
     void remove(int id);
 
+    /* Подменяет просмотренную версию задачи с тем же id, не меняя её места в истории.
+    Непросмотренная задача в историю не добавляется */
+    void replace(Task task);
+
     List<Task> getHistory();
+
+    /* История от старых просмотров к новым без копирования в список */
+    Stream<Task> streamHistory();
 }
@@ -0,0 +1,89 @@
+package managers;
+
+import storage.IdRangeSource;
+import storage.StorageSettings;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Выдаёт id из арендованных диапазонов. Внутри диапазона id берутся атомарным счётчиком без блокировок,
+к источнику за новым диапазоном идёт только поток, исчерпавший текущий. Источник хранит отметку - первый id,
+ещё не отданный ни в один диапазон, поэтому id не повторяются ни после перезапуска, ни между экземплярами
+с общим источником. Невыданный остаток диапазона при перезапуске пропадает */
+public class IdAllocator {
+
+    private final IdRangeSource source;
+    private final int blockSize;
+    private volatile Block block = new Block(0, 0);
+
+    public IdAllocator() {
+        this(new MemoryRangeSource(), StorageSettings.DEFAULT_ID_BLOCK_SIZE);
+    }
+
+    public IdAllocator(IdRangeSource source, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер диапазона id должен быть положительным: " + blockSize);
+        }
+        this.source = source;
+        this.blockSize = blockSize;
+    }
+
+    public int nextId() {
+        while (true) {
+            Block current = block;
+            int id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            lease(current);
+        }
+    }
+
+    /* Следующие id будут не меньше next. Вызывается после загрузки, до выдачи новых id:
+    данные могли записать без этого источника, и занятые ими id пропускаются */
+    public synchronized void skipTo(int next) {
+        source.raise(next);
+        Block current = block;
+        if (current.end <= next) {
+            block = new Block(0, 0);
+        } else if (current.next.get() < next) {
+            block = new Block(next, current.end);
+        }
+    }
+
+    private synchronized void lease(Block exhausted) {
+        if (block != exhausted) {
+            return;
+        }
+        int start = source.lease(blockSize);
+        block = new Block(start, Math.addExact(start, blockSize));
+    }
+
+    private static final class Block {
+
+        private final AtomicInteger next;
+        private final int end;
+
+        private Block(int start, int end) {
+            this.next = new AtomicInteger(start);
+            this.end = end;
+        }
+    }
+
+    /* Источник без хранения для менеджеров в памяти */
+    private static final class MemoryRangeSource implements IdRangeSource {
+
+        private int mark = 1;
+
+        @Override
+        public synchronized int lease(int count) {
+            int start = mark;
+            mark = Math.addExact(mark, count);
+            return start;
+        }
+
+        @Override
+        public synchronized void raise(int next) {
+            mark = Math.max(mark, next);
+        }
+    }
+}
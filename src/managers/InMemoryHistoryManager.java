@@ -4,13 +4,13 @@ import model.Node;
 import model.Task;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 public class InMemoryHistoryManager implements HistoryManager {
 
-    private final Map<Integer, Node<Task>> taskHistoryMap = new HashMap<>();
+    private final IntObjectMap<Node<Task>> taskHistoryMap = new IntObjectMap<>();
     private Node<Task> head;
     private Node<Task> tail;
 
@@ -67,9 +67,17 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
     }
 
+    @Override
+    public void replace(Task task) {
+        Node<Task> node = taskHistoryMap.get(task.getId());
+        if (node != null) {
+            node.setTask(task);
+        }
+    }
+
     @Override
     public void remove(int id) {
-        Node<Task> node = taskHistoryMap.get(id);
+        Node<Task> node = taskHistoryMap.remove(id);
         if (node != null) {
             removeNode(node);
         }
@@ -79,4 +87,10 @@ public class InMemoryHistoryManager implements HistoryManager {
     public List<Task> getHistory() {
         return getTasks();
     }
+
+    /* Живое представление списка просмотров: поток нужно дочитать до следующего add или remove */
+    @Override
+    public Stream<Task> streamHistory() {
+        return Stream.iterate(head, Objects::nonNull, Node::getNext).map(Node::getTask);
+    }
 }
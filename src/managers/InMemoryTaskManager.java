@@ -1,20 +1,31 @@
 package managers;
 
+import exceptions.TaskNotFoundException;
+import exceptions.TaskOverlapException;
 import model.Epic;
+import model.IntLinkedSet;
 import model.enums.Status;
 import model.Subtask;
 import model.Task;
+import model.enums.TaskType;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 public class InMemoryTaskManager implements TaskManager {
 
@@ -23,16 +34,27 @@ public class InMemoryTaskManager implements TaskManager {
 
     Logger inMemoryLogger = Logger.getLogger(getClass().getName());
 
-    protected HashMap<Integer, Task> tasks = new HashMap<>();
-    protected HashMap<Integer, Epic> epics = new HashMap<>();
-    protected HashMap<Integer, Subtask> subtasks = new HashMap<>();
-    protected Set<Task> prioritizedTasks = new TreeSet<>(taskComparator);
+    protected IntObjectMap<Task> tasks = new IntObjectMap<>();
+    protected IntObjectMap<Epic> epics = new IntObjectMap<>();
+    protected IntObjectMap<Subtask> subtasks = new IntObjectMap<>();
+    protected NavigableSet<Task> prioritizedTasks = new TreeSet<>(taskComparator);
     protected HistoryManager historyManager = Managers.getDefaultHistory();
-
-    private int currentId = 0;
+    private final IntervalTree schedule = new IntervalTree();
+    /* Статус и время, с которыми подзадача учтена в агрегатах эпика. Хранятся отдельно, потому что
+    объект подзадачи могли изменить на месте до вызова updateSubtask */
+    private final IntObjectMap<CountedSubtask> countedSubtasks = new IntObjectMap<>();
+    /* Id по статусу отдельно для каждого типа. Статус, под которым id проиндексирован, тоже
+    хранится отдельно: объект могли изменить на месте до вызова update */
+    private final Map<TaskType, Map<Status, IntLinkedSet>> statusIndex = new EnumMap<>(TaskType.class);
+    private final IntObjectMap<Status> indexedStatuses = new IntObjectMap<>();
+    private final TextIndex textIndex = new TextIndex();
+    /* Id каждого типа по возрастанию для постраничного обхода в стабильном порядке */
+    private final Map<TaskType, SortedIntSet> sortedIds = new EnumMap<>(TaskType.class);
+
+    protected IdAllocator idAllocator = new IdAllocator();
 
     public int generateId() {
-        return ++currentId;
+        return idAllocator.nextId();
     }
 
     public HistoryManager getHistoryManager() {
@@ -54,6 +76,21 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(subtasks.values());
     }
 
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.values().stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream();
+    }
+
     @Override
     public List<Subtask> getSubtaskList(Epic epic) {
         if (!epics.containsValue(epic)) {
@@ -71,34 +108,54 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteAllTasks() {
         for (Task task : tasks.values()) {
             historyManager.remove(task.getId());
-            prioritizedTasks.remove(task);
+            removeFromSchedule(task);
+            indexedStatuses.remove(task.getId());
+            textIndex.remove(task.getId());
         }
         tasks.clear();
+        statusIndex.remove(TaskType.TASK);
+        sortedIds.remove(TaskType.TASK);
     }
 
     @Override
     public void deleteAllEpics() {
         for (Epic epic : epics.values()) {
             historyManager.remove(epic.getId());
+            indexedStatuses.remove(epic.getId());
+            textIndex.remove(epic.getId());
         }
         epics.clear();
+        statusIndex.remove(TaskType.EPIC);
+        sortedIds.remove(TaskType.EPIC);
 
         for (Subtask subtask : subtasks.values()) {
             historyManager.remove(subtask.getId());
+            removeFromSchedule(subtask);
+            indexedStatuses.remove(subtask.getId());
+            textIndex.remove(subtask.getId());
         }
         subtasks.clear();
+        countedSubtasks.clear();
+        statusIndex.remove(TaskType.SUBTASK);
+        sortedIds.remove(TaskType.SUBTASK);
     }
 
     @Override
     public void deleteAllSubtasks() {
         for (Task subtask : subtasks.values()) {
             historyManager.remove(subtask.getId());
-            prioritizedTasks.remove(subtask);
+            removeFromSchedule(subtask);
+            indexedStatuses.remove(subtask.getId());
+            textIndex.remove(subtask.getId());
         }
         subtasks.clear();
+        countedSubtasks.clear();
+        statusIndex.remove(TaskType.SUBTASK);
+        sortedIds.remove(TaskType.SUBTASK);
         for (Epic epic : epics.values()) {
             epic.removeSubtasks();
-            epic.setStatus(calculateStatus(epic));
+            epic.setStatus(Status.NEW);
+            indexStatus(epic);
         }
     }
 
@@ -137,9 +194,14 @@ public class InMemoryTaskManager implements TaskManager {
         if (task == null) {
             return null;
         }
+        if (!isValid(task)) {
+            inMemoryLogger.info("Задача пересекается с другими задачами");
+            return null;
+        }
         task.setId(generateId());
         tasks.put(task.getId(), task);
-        prioritizedTasks.add(task);
+        addToSchedule(task);
+        indexItem(task);
         return task;
     }
 
@@ -150,6 +212,7 @@ public class InMemoryTaskManager implements TaskManager {
         }
         epic.setId(generateId());
         epics.put(epic.getId(), epic);
+        indexItem(epic);
 
         return epic;
     }
@@ -173,13 +236,13 @@ public class InMemoryTaskManager implements TaskManager {
 
         subtask.setId(generateId());
         subtasks.put(subtask.getId(), subtask);
+        indexItem(subtask);
 
         Epic epic = epics.get(subtask.getEpicId());
         epic.addSubtask(subtask.getId());
-        epic.setStatus(calculateStatus(epic));
-        createEpicDateTime(epic);
+        countSubtask(epic, subtask);
 
-        prioritizedTasks.add(subtask);
+        addToSchedule(subtask);
 
         return subtask;
     }
@@ -196,9 +259,13 @@ public class InMemoryTaskManager implements TaskManager {
             task.setStatus(existingTask.getStatus());
         }
 
+        removeFromSchedule(existingTask);
         if (isValid(task)) {
             tasks.put(task.getId(), task);
+            addToSchedule(task);
+            indexItem(task);
         } else {
+            addToSchedule(existingTask);
             throw new IllegalArgumentException(
                     "Задача пересекается с другими задачами или передана некорректная задача");
         }
@@ -211,9 +278,7 @@ public class InMemoryTaskManager implements TaskManager {
             return;
         }
 
-        Epic savedEpic = epics.get(epic.getId());
-        savedEpic.setName(epic.getName());
-        savedEpic.setDescription(epic.getDescription());
+        renameEpic(epics.get(epic.getId()), epic);
     }
 
     @Override
@@ -228,17 +293,16 @@ public class InMemoryTaskManager implements TaskManager {
             inMemoryLogger.info("Некорректный эпик для подзадачи");
             return;
         }
-        List<Integer> epicSubtaskList = epics.get(epicId).getEpicSubtasks();
-        if (!epicSubtaskList.contains(subtask.getId())) {
+        if (!epics.get(epicId).containsSubtask(subtask.getId())) {
             inMemoryLogger.info("Неправильно указан эпик в подзадаче");
             return;
         }
 
         Subtask savedSubtask = subtasks.get(subtask.getId());
-        prioritizedTasks.remove(savedSubtask);
+        removeFromSchedule(savedSubtask);
         if (!isValid(subtask)) {
             inMemoryLogger.info("Подзадача пересекается с другими задачами");
-            prioritizedTasks.add(savedSubtask);
+            addToSchedule(savedSubtask);
             return;
         }
 
@@ -246,10 +310,10 @@ public class InMemoryTaskManager implements TaskManager {
             subtask.setStatus(Status.NEW);
         }
         subtasks.put(subtask.getId(), subtask);
+        indexItem(subtask);
         Epic epic = epics.get(epicId);
-        epic.setStatus(calculateStatus(epic));
-        createEpicDateTime(epic);
-        prioritizedTasks.add(subtask);
+        countSubtask(epic, subtask);
+        addToSchedule(subtask);
     }
 
     @Override
@@ -258,9 +322,7 @@ public class InMemoryTaskManager implements TaskManager {
             inMemoryLogger.info("Задача не найдена");
             return;
         }
-        prioritizedTasks.remove(tasks.get(id));
-        tasks.remove(id);
-        historyManager.remove(id);
+        removeTask(id);
     }
 
     @Override
@@ -269,49 +331,464 @@ public class InMemoryTaskManager implements TaskManager {
             inMemoryLogger.info("Эпик не найден");
             return;
         }
+        removeEpic(id);
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        if (!subtasks.containsKey(id)) {
+            inMemoryLogger.info("Подзадача не найдена");
+            return;
+        }
+        removeSubtask(id);
+    }
+
+    private void removeTask(int id) {
+        removeFromSchedule(tasks.get(id));
+        tasks.remove(id);
+        unindexItem(TaskType.TASK, id);
+        historyManager.remove(id);
+    }
+
+    private void removeEpic(int id) {
         Epic savedEpic = epics.get(id);
 
         for (Integer subtaskId : savedEpic.getEpicSubtasks()) {
             historyManager.remove(subtaskId);
-            subtasks.remove(subtaskId);
+            Subtask subtask = subtasks.remove(subtaskId);
+            if (subtask != null) {
+                removeFromSchedule(subtask);
+            }
+            countedSubtasks.remove(subtaskId);
+            unindexItem(TaskType.SUBTASK, subtaskId);
         }
         epics.remove(id);
+        unindexItem(TaskType.EPIC, id);
         historyManager.remove(id);
     }
 
-    @Override
-    public void deleteSubtaskById(int id) {
-        if (!subtasks.containsKey(id)) {
-            inMemoryLogger.info("Подзадача не найдена");
-            return;
-        }
+    private void removeSubtask(int id) {
         Subtask subtask = subtasks.get(id);
         int savedEpicId = subtask.getEpicId();
         Epic savedEpic = epics.get(savedEpicId);
-        prioritizedTasks.remove(subtask);
+        removeFromSchedule(subtask);
         subtasks.remove(id);
+        unindexItem(TaskType.SUBTASK, id);
         savedEpic.deleteSubtask(id);
         historyManager.remove(id);
 
-        savedEpic.setStatus(calculateStatus(savedEpic));
+        uncountSubtask(savedEpic, id);
+    }
+
+    @Override
+    public List<Task> createAll(List<? extends Task> items) {
+        return applyBatch(items, List.of(), List.of());
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> items) {
+        applyBatch(List.of(), items, List.of());
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        applyBatch(List.of(), List.of(), ids);
+    }
+
+    /* Пакет проверяется целиком до первого изменения: подзадачи должны ссылаться на существующие
+    эпики, обновляемые задачи - существовать, а задачи со временем не должны пересекаться ни
+    с расписанием, ни друг с другом. Старые интервалы обновляемых задач при проверке не учитываются,
+    поэтому задачи пакета могут меняться местами. При ошибке не меняется ничего. Затем применяются
+    создания, обновления и удаления; удаления идут последними, и при проверке интервалы удаляемых
+    задач ещё заняты. Неизвестные id удаления пропускаются. Эпики создаются в порядке
+    пакета, но ссылаться на них подзадачи того же пакета не могут - id ещё не выданы */
+    @Override
+    public List<Task> applyBatch(List<? extends Task> created, List<? extends Task> updated,
+                                 Collection<Integer> deleted) {
+        checkBatchIds(updated, deleted);
+        List<Task> saved = checkBatch(created, updated);
+
+        List<Task> result = new ArrayList<>(created.size());
+        for (Task item : created) {
+            item.setId(generateId());
+            if (item instanceof Epic epic) {
+                epics.put(epic.getId(), epic);
+            } else if (item instanceof Subtask subtask) {
+                subtasks.put(subtask.getId(), subtask);
+                indexItem(subtask);
+                Epic epic = epics.get(subtask.getEpicId());
+                epic.addSubtask(subtask.getId());
+                countSubtask(epic, subtask);
+                addToSchedule(subtask);
+            } else {
+                tasks.put(item.getId(), item);
+                addToSchedule(item);
+            }
+            if (!(item instanceof Subtask)) {
+                indexItem(item);
+            }
+            result.add(item);
+        }
+
+        for (Task task : saved) {
+            if (!(task instanceof Epic)) {
+                removeFromSchedule(task);
+            }
+        }
+        for (int i = 0; i < updated.size(); i++) {
+            Task item = updated.get(i);
+            if (item instanceof Epic epic) {
+                renameEpic(epics.get(epic.getId()), epic);
+            } else if (item instanceof Subtask subtask) {
+                if (subtask.getStatus() == null) {
+                    subtask.setStatus(Status.NEW);
+                }
+                subtasks.put(subtask.getId(), subtask);
+                indexItem(subtask);
+                countSubtask(epics.get(subtask.getEpicId()), subtask);
+                addToSchedule(subtask);
+            } else {
+                if (item.getStatus() == null) {
+                    item.setStatus(saved.get(i).getStatus());
+                }
+                tasks.put(item.getId(), item);
+                addToSchedule(item);
+                indexItem(item);
+            }
+        }
+
+        for (Integer id : deleted) {
+            if (tasks.containsKey(id)) {
+                removeTask(id);
+            } else if (epics.containsKey(id)) {
+                removeEpic(id);
+            } else if (subtasks.containsKey(id)) {
+                removeSubtask(id);
+            }
+        }
+        return result;
+    }
+
+    /* Id обновления не может повторяться и не может одновременно удаляться: проверка пересечений
+    пропускает собственный id задачи, и две версии одной задачи прошли бы её обе. Общая проверка
+    для SnapshotTaskManager и ShardedTaskManager */
+    static void checkBatchIds(List<? extends Task> updated, Collection<Integer> deleted) {
+        Set<Integer> updatedIds = new HashSet<>();
+        for (Task item : updated) {
+            if (item == null) {
+                throw new IllegalArgumentException("Пакет содержит пустую задачу");
+            }
+            if (!updatedIds.add(item.getId())) {
+                throw new IllegalArgumentException("Id обновляется в пакете дважды: " + item.getId());
+            }
+        }
+        for (Integer id : deleted) {
+            if (updatedIds.contains(id)) {
+                throw new IllegalArgumentException("Id в пакете одновременно обновляется и удаляется: " + id);
+            }
+        }
+    }
+
+    /* Возвращает сохранённые версии обновляемых задач. Расписание на время проверки
+    освобождается от их старых интервалов и затем восстанавливается */
+    private List<Task> checkBatch(List<? extends Task> created, List<? extends Task> updated) {
+        for (Task item : created) {
+            if (item == null) {
+                throw new IllegalArgumentException("Пакет содержит пустую задачу");
+            }
+            if (item instanceof Subtask subtask && !epics.containsKey(subtask.getEpicId())) {
+                throw new TaskNotFoundException("Отсутствует эпик для подзадачи: " + subtask.getEpicId());
+            }
+        }
+        List<Task> saved = new ArrayList<>(updated.size());
+        for (Task item : updated) {
+            saved.add(savedForUpdate(item));
+        }
+
+        for (Task task : saved) {
+            if (!(task instanceof Epic)) {
+                removeFromSchedule(task);
+            }
+        }
+        try {
+            IntervalTree batch = new IntervalTree();
+            for (int i = 0; i < created.size(); i++) {
+                if (!(created.get(i) instanceof Epic)) {
+                    checkBatchOverlap(batch, -(i + 1), created.get(i));
+                }
+            }
+            for (Task item : updated) {
+                if (!(item instanceof Epic)) {
+                    checkBatchOverlap(batch, item.getId(), item);
+                }
+            }
+        } finally {
+            for (Task task : saved) {
+                if (!(task instanceof Epic)) {
+                    addToSchedule(task);
+                }
+            }
+        }
+        return saved;
+    }
+
+    private Task savedForUpdate(Task item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Пакет содержит пустую задачу");
+        }
+        Task saved = stored(item);
+        if (saved == null) {
+            throw new TaskNotFoundException("Некорректный id в пакете: " + item.getId());
+        }
+        return saved;
+    }
+
+    private Task stored(Task item) {
+        if (item instanceof Epic) {
+            return epics.get(item.getId());
+        }
+        if (item instanceof Subtask subtask) {
+            Epic epic = epics.get(subtask.getEpicId());
+            return epic != null && epic.containsSubtask(subtask.getId()) ? subtasks.get(subtask.getId()) : null;
+        }
+        return tasks.get(item.getId());
+    }
+
+    /* Проверки для ShardedTaskManager: пакет целиком проверяется по всем шардам до применения,
+    поэтому шарду нужно отвечать на них без побочных эффектов вроде записи в историю */
+    boolean hasEpic(int id) {
+        return epics.containsKey(id);
+    }
+
+    boolean isUpdatable(Task item) {
+        return item != null && stored(item) != null;
+    }
+
+    /* Id задач и подзадач расписания, с которыми пересекается задача, по тем же правилам, что isValid */
+    List<Integer> overlappingIds(Task task) {
+        if (task.getStartTime() == null) {
+            return Collections.emptyList();
+        }
+        return schedule.overlapping(task.getStartTime(), task.getEndTime());
+    }
+
+    /* Проверяет задачу пакета по расписанию и по уже проверенным задачам пакета и добавляет её к ним */
+    private void checkBatchOverlap(IntervalTree batch, int batchId, Task task) {
+        if (task.getStartTime() == null) {
+            return;
+        }
+        if (!isValid(task) || batch.overlaps(task.getStartTime(), task.getEndTime(), batchId)) {
+            throw new TaskOverlapException("Задача пакета пересекается с другими задачами: " + task.getName());
+        }
+        batch.add(batchId, task.getStartTime(), task.getEndTime());
     }
 
     @Override
     public Status calculateStatus(Epic epic) {
-        List<Integer> subtaskList = epic.getEpicSubtasks();
-        if (subtaskList.isEmpty()) return Status.NEW;
+        int newCount = epic.getSubtaskCount(Status.NEW);
+        int doneCount = epic.getSubtaskCount(Status.DONE);
+        int total = newCount + epic.getSubtaskCount(Status.IN_PROGRESS) + doneCount;
+
+        if (newCount == total) return Status.NEW;
+        if (doneCount == total) return Status.DONE;
+        return Status.IN_PROGRESS;
+    }
+
+    /* Учитывает текущие статус и время подзадачи в агрегатах эпика вместо ранее учтённых */
+    protected void countSubtask(Epic epic, Subtask subtask) {
+        CountedSubtask counted = new CountedSubtask(
+                subtask.getStatus() != null ? subtask.getStatus() : Status.NEW,
+                subtask.getStartTime(), subtask.getEndTime(), subtask.getDuration());
+        CountedSubtask previous = countedSubtasks.put(subtask.getId(), counted);
+        if (previous != null) {
+            uncount(epic, previous);
+        }
+        epic.addSubtaskStatus(counted.status());
+        epic.addSubtaskTime(counted.start(), counted.end(), counted.duration());
+        epic.setStatus(calculateStatus(epic));
+        indexStatus(epic);
+    }
+
+    protected void uncountSubtask(Epic epic, int subtaskId) {
+        CountedSubtask previous = countedSubtasks.remove(subtaskId);
+        if (previous != null) {
+            uncount(epic, previous);
+        }
+        epic.setStatus(calculateStatus(epic));
+        indexStatus(epic);
+    }
+
+    private static void uncount(Epic epic, CountedSubtask counted) {
+        epic.removeSubtaskStatus(counted.status());
+        epic.removeSubtaskTime(counted.start(), counted.end(), counted.duration());
+    }
+
+    /* Переименование не трогает id, статус и подзадачи, поэтому кроме имени и описания
+    меняется только индекс слов */
+    protected void renameEpic(Epic saved, Epic epic) {
+        saved.setName(epic.getName());
+        saved.setDescription(epic.getDescription());
+        textIndex.add(saved.getId(), saved.getName(), saved.getDescription());
+    }
+
+    /* Индексирует созданную или изменённую задачу по id, статусу и словам названия и описания */
+    protected void indexItem(Task task) {
+        sortedIds.computeIfAbsent(task.getType(), key -> new SortedIntSet()).add(task.getId());
+        indexStatus(task);
+        textIndex.add(task.getId(), task.getName(), task.getDescription());
+    }
+
+    protected void unindexItem(TaskType type, int id) {
+        SortedIntSet ids = sortedIds.get(type);
+        if (ids != null) {
+            ids.remove(id);
+        }
+        unindexStatus(type, id);
+        textIndex.remove(id);
+    }
+
+    private <T extends Task> List<T> page(TaskType type, int after, int limit, IntObjectMap<T> items) {
+        SortedIntSet ids = sortedIds.get(type);
+        List<T> result = new ArrayList<>();
+        if (ids == null || limit <= 0) {
+            return result;
+        }
+        for (int id : ids.after(after, limit)) {
+            result.add(items.get(id));
+        }
+        return result;
+    }
+
+    /* Страница из не более limit элементов с id больше after в порядке возрастания id.
+    Курсор следующей страницы - id последнего элемента; обход не копирует всё хранилище */
+    @Override
+    public List<Task> getTasksPage(int after, int limit) {
+        return page(TaskType.TASK, after, limit, tasks);
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int after, int limit) {
+        return page(TaskType.EPIC, after, limit, epics);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int after, int limit) {
+        return page(TaskType.SUBTASK, after, limit, subtasks);
+    }
+
+    /* Переносит id в индексе под текущий статус задачи. Задачи без статуса в индекс не попадают */
+    protected void indexStatus(Task task) {
+        int id = task.getId();
+        Status status = task.getStatus();
+        Status previous = indexedStatuses.get(id);
+        if (previous == status) {
+            return;
+        }
+        if (previous != null) {
+            statusIds(task.getType(), previous).remove(id);
+        }
+        if (status == null) {
+            indexedStatuses.remove(id);
+            return;
+        }
+        statusIds(task.getType(), status).add(id);
+        indexedStatuses.put(id, status);
+    }
+
+    protected void unindexStatus(TaskType type, int id) {
+        Status previous = indexedStatuses.remove(id);
+        if (previous != null) {
+            statusIds(type, previous).remove(id);
+        }
+    }
+
+    private IntLinkedSet statusIds(TaskType type, Status status) {
+        return statusIndex.computeIfAbsent(type, key -> new EnumMap<>(Status.class))
+                .computeIfAbsent(status, key -> new IntLinkedSet());
+    }
+
+    private <T extends Task> List<T> byStatus(TaskType type, Status status, IntObjectMap<T> items) {
+        Map<Status, IntLinkedSet> byType = statusIndex.get(type);
+        IntLinkedSet ids = byType == null ? null : byType.get(status);
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        List<T> result = new ArrayList<>(ids.size());
+        for (PrimitiveIterator.OfInt iterator = ids.iterator(); iterator.hasNext(); ) {
+            result.add(items.get(iterator.nextInt()));
+        }
+        return result;
+    }
+
+    /* Выборки по статусу читают только индекс нужного типа и статуса, не обходя остальные задачи */
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return byStatus(TaskType.TASK, status, tasks);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return byStatus(TaskType.EPIC, status, epics);
+    }
 
-        int newStatus = 0;
-        int doneStatus = 0;
-        for (Integer subtaskId : subtaskList) {
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return byStatus(TaskType.SUBTASK, status, subtasks);
+    }
+
+    /* Задачи, эпики и подзадачи, в названии или описании которых есть все слова запроса
+    (или всех слов одной из групп, разделённых OR) */
+    @Override
+    public List<Task> search(String query, int limit) {
+        List<Task> result = new ArrayList<>();
+        if (query == null || limit <= 0) {
+            return result;
+        }
+        for (Integer id : textIndex.search(query, limit)) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = epics.get(id);
+            }
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            result.add(task);
+        }
+        return result;
+    }
+
+    /* Проверка для тестов: счётчики и статус эпика совпадают с пересчётом по подзадачам */
+    boolean isEpicStatusConsistent(Epic epic) {
+        int[] counts = new int[Status.values().length];
+        for (Integer subtaskId : epic.getEpicSubtasks()) {
             Status status = subtasks.get(subtaskId).getStatus();
-            if (status.equals(Status.NEW)) newStatus++;
-            if (status.equals(Status.DONE)) doneStatus++;
+            counts[(status != null ? status : Status.NEW).ordinal()]++;
+        }
+        for (Status status : Status.values()) {
+            if (epic.getSubtaskCount(status) != counts[status.ordinal()]) {
+                return false;
+            }
         }
+        return epic.getStatus() == calculateStatus(epic);
+    }
 
-        if (newStatus == subtaskList.size()) return Status.NEW;
-        if (doneStatus == subtaskList.size()) return Status.DONE;
-        return Status.IN_PROGRESS;
+    /* Проверка для тестов: время эпика совпадает с пересчётом по подзадачам */
+    boolean isEpicTimeConsistent(Epic epic) {
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+        Duration duration = null;
+        for (Integer subtaskId : epic.getEpicSubtasks()) {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask.getStartTime() != null) {
+                start = start == null || subtask.getStartTime().isBefore(start) ? subtask.getStartTime() : start;
+                end = end == null || subtask.getEndTime().isAfter(end) ? subtask.getEndTime() : end;
+            }
+            if (subtask.getDuration() != null) {
+                duration = duration == null ? subtask.getDuration() : duration.plus(subtask.getDuration());
+            }
+        }
+        return Objects.equals(start, epic.getStartTime()) && Objects.equals(end, epic.getEndTime())
+                && Objects.equals(duration, epic.getDuration());
     }
 
     @Override
@@ -344,48 +821,74 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(prioritizedTasks);
     }
 
-    private void createEpicDateTime(Epic epic) {
-        List<Integer> subtaskList = epic.getEpicSubtasks();
-        if (subtaskList.isEmpty()) {
-            epic.setDuration(null);
-            epic.setStartTime(null);
-            epic.setEndTime(null);
-            return;
-        }
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return prioritizedTasks.stream();
+    }
 
-        for (Integer subtaskId : subtaskList) {
-            updateEpicWithSubtask(epic, subtasks.get(subtaskId));
-        }
+    /* Задачи и подзадачи, пересекающиеся с [from, to), в порядке начала. Границы null означают
+    неограниченный диапазон, задачи без времени начала в выборку не попадают */
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to) {
+        return getTasksInRange(from, to, Integer.MAX_VALUE);
     }
 
-    private void updateEpicWithSubtask(Epic epic, Subtask subtask) {
-        LocalDateTime subtaskStartTime = subtask.getStartTime();
-        LocalDateTime subtaskEndTime = subtask.getEndTime();
-        Duration subtaskDuration = subtask.getDuration();
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int limit) {
+        LocalDateTime start = from != null ? from : LocalDateTime.MIN;
+        LocalDateTime end = to != null ? to : LocalDateTime.MAX;
+        if (!start.isBefore(end) || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Task> result = new ArrayList<>();
+        for (Integer id : schedule.overlapping(start, end, limit)) {
+            Task task = tasks.get(id);
+            result.add(task != null ? task : subtasks.get(id));
+        }
+        return result;
+    }
 
-        if (epic.getStartTime() == null || epic.getStartTime().isAfter(subtaskStartTime)) {
-            epic.setStartTime(subtaskStartTime);
+    /* Первые limit задач, начинающихся не раньше after (null - с самой ранней), из хвоста приоритетного списка */
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        List<Task> result = new ArrayList<>();
+        if (limit <= 0) {
+            return result;
+        }
+        Iterable<Task> candidates = after == null ? prioritizedTasks
+                : prioritizedTasks.tailSet(new Task(Integer.MIN_VALUE, null, null, null, after, null), true);
+        for (Task task : candidates) {
+            if (task.getStartTime() == null || result.size() == limit) {
+                break;
+            }
+            result.add(task);
         }
+        return result;
+    }
 
-        if (epic.getEndTime() == null || subtaskEndTime.isAfter(epic.getEndTime())) {
-            epic.setEndTime(subtaskEndTime);
+    /* Задачи без времени начала ни с чем не пересекаются. Проверяются и задачи, и подзадачи */
+    public boolean isValid(Task task) {
+        if (task.getStartTime() == null) {
+            return true;
         }
+        return !schedule.overlaps(task.getStartTime(), task.getEndTime(), task.getId());
+    }
 
-        if (epic.getDuration() == null) {
-            epic.setDuration(subtaskDuration);
-        } else {
-            epic.setDuration(epic.getDuration().plus(subtaskDuration));
+    protected void addToSchedule(Task task) {
+        prioritizedTasks.add(task);
+        if (task.getStartTime() != null) {
+            schedule.add(task.getId(), task.getStartTime(), task.getEndTime());
         }
     }
 
-    public boolean isValid(Task task) {
-        for (Task existingTask : tasks.values()) {
-            if (existingTask.getId() != task.getId() &&
-                    (task.getStartTime().isBefore(existingTask.getEndTime()) &&
-                            task.getEndTime().isAfter(existingTask.getStartTime()))) {
-                return false;
-            }
+    /* Если объект задачи изменили на месте, TreeSet его по новому ключу не найдёт */
+    protected void removeFromSchedule(Task task) {
+        if (!prioritizedTasks.remove(task)) {
+            prioritizedTasks.removeIf(scheduled -> scheduled.getId() == task.getId());
         }
-        return true;
+        schedule.remove(task.getId());
+    }
+
+    private record CountedSubtask(Status status, LocalDateTime start, LocalDateTime end, Duration duration) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,275 @@
+package managers;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/* Хеш-таблица int -> объект с открытой адресацией и линейным пробированием. Ключи лежат
+в массиве int, значения - в параллельном массиве, поэтому на запись не тратятся ни Integer,
+ни HashMap.Node, а get(int)/put(int, V) не упаковывают ключ. Удаление сдвигает следующие
+элементы цепочки назад вместо надгробий.
+Хеш для небольших ключей совпадает с самим ключом, так что последовательные id ложатся
+в соседние ячейки и обходятся по возрастанию, как в HashMap. null в качестве значения не допускается */
+public class IntObjectMap<V> extends AbstractMap<Integer, V> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+    private int modCount;
+
+    public IntObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(int key) {
+        return values[indexOf(key)] != null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer intKey && containsKey(intKey.intValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        return (V) values[indexOf(key)];
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer intKey ? get(intKey.intValue()) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        Objects.requireNonNull(value, "IntObjectMap не хранит null");
+        int index = indexOf(key);
+        V previous = (V) values[index];
+        if (previous == null) {
+            keys[index] = key;
+            modCount++;
+            if (++size > threshold) {
+                values[index] = value;
+                resize(values.length * 2);
+                return null;
+            }
+        }
+        values[index] = value;
+        return previous;
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int index = indexOf(key);
+        V previous = (V) values[index];
+        if (previous == null) {
+            return null;
+        }
+        shiftBack(index);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer intKey ? remove(intKey.intValue()) : null;
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V element(int index) {
+                        return (V) values[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    Integer element(int index) {
+                        return keys[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    Entry<Integer, V> element(int index) {
+                        return new SimpleImmutableEntry<>(keys[index], (V) values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /* Индекс ячейки с ключом или первой пустой ячейки, куда его следует положить */
+    private int indexOf(int key) {
+        int index = hash(key) & mask;
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /* После освобождения ячейки элементы дальше по цепочке, чья исходная позиция не лежит
+    между освобождённой ячейкой и их текущим местом, переносятся в неё */
+    private void shiftBack(int free) {
+        int index = free;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == null) {
+                values[free] = null;
+                return;
+            }
+            int home = hash(keys[index]) & mask;
+            boolean between = free <= index ? free < home && home <= index : free < home || home <= index;
+            if (!between) {
+                keys[free] = keys[index];
+                values[free] = values[index];
+                free = index;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(int key) {
+        return key ^ (key >>> 16);
+    }
+
+    private abstract class SlotIterator<T> implements Iterator<T> {
+
+        private final int expectedModCount = modCount;
+        private int next = advance(0);
+
+        abstract T element(int index);
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= values.length) {
+                throw new NoSuchElementException();
+            }
+            T element = element(next);
+            next = advance(next + 1);
+            return element;
+        }
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == null) {
+                from++;
+            }
+            return from;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package managers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/* АВЛ-дерево интервалов [начало, окончание), упорядоченных по началу и id. В каждом узле хранится
+максимальное окончание в поддереве, поэтому поиск пересечений отсекает поддеревья, целиком
+лежащие левее запроса, и работает за O(log n + k). Интервал запоминается при добавлении,
+так что удаление не зависит от того, изменили ли с тех пор объект задачи */
+class IntervalTree {
+
+    private Node root;
+    private final IntObjectMap<Node> nodes = new IntObjectMap<>();
+
+    int size() {
+        return nodes.size();
+    }
+
+    boolean contains(int id) {
+        return nodes.containsKey(id);
+    }
+
+    void add(int id, LocalDateTime start, LocalDateTime end) {
+        remove(id);
+        Node node = new Node(id, start, end);
+        nodes.put(id, node);
+        root = insert(root, node);
+    }
+
+    void remove(int id) {
+        Node node = nodes.remove(id);
+        if (node != null) {
+            root = delete(root, node);
+        }
+    }
+
+    void clear() {
+        root = null;
+        nodes.clear();
+    }
+
+    boolean overlaps(LocalDateTime start, LocalDateTime end, int excludedId) {
+        return findOverlap(root, start, end, excludedId) != null;
+    }
+
+    List<Integer> overlapping(LocalDateTime start, LocalDateTime end) {
+        return overlapping(start, end, Integer.MAX_VALUE);
+    }
+
+    /* Первые limit пересечений по возрастанию начала: обход останавливается, не заходя в остальные узлы */
+    List<Integer> overlapping(LocalDateTime start, LocalDateTime end, int limit) {
+        List<Integer> result = new ArrayList<>();
+        collect(root, start, end, limit, result);
+        return result;
+    }
+
+    private static Node findOverlap(Node node, LocalDateTime start, LocalDateTime end, int excludedId) {
+        while (node != null && node.maxEnd.isAfter(start)) {
+            Node found = findOverlap(node.left, start, end, excludedId);
+            if (found != null) {
+                return found;
+            }
+            if (!node.start.isBefore(end)) {
+                return null;
+            }
+            if (node.id != excludedId && node.end.isAfter(start)) {
+                return node;
+            }
+            node = node.right;
+        }
+        return null;
+    }
+
+    private static void collect(Node node, LocalDateTime start, LocalDateTime end, int limit, List<Integer> result) {
+        if (node == null || result.size() >= limit || !node.maxEnd.isAfter(start)) {
+            return;
+        }
+        collect(node.left, start, end, limit, result);
+        if (result.size() >= limit || !node.start.isBefore(end)) {
+            return;
+        }
+        if (node.end.isAfter(start)) {
+            result.add(node.id);
+        }
+        collect(node.right, start, end, limit, result);
+    }
+
+    private static int compare(Node first, Node second) {
+        int result = first.start.compareTo(second.start);
+        return result != 0 ? result : Integer.compare(first.id, second.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private static Node delete(Node node, Node removed) {
+        if (node == null) {
+            return null;
+        }
+        int result = compare(removed, node);
+        if (result < 0) {
+            node.left = delete(node.left, removed);
+        } else if (result > 0) {
+            node.right = delete(node.right, removed);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static class Node {
+
+        private final int id;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        Node(int id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+}
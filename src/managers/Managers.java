@@ -1,9 +1,11 @@
 package managers;
 
 import adapters.DurationAdapter;
+import adapters.IntLinkedSetAdapter;
 import adapters.LocalDateTimeAdapter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import model.IntLinkedSet;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -31,6 +33,7 @@ public class Managers {
         GsonBuilder gsonBuilder = new GsonBuilder();
         gsonBuilder.registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter());
         gsonBuilder.registerTypeAdapter(Duration.class, new DurationAdapter());
+        gsonBuilder.registerTypeAdapter(IntLinkedSet.class, new IntLinkedSetAdapter());
         return gsonBuilder.create();
     }
 }
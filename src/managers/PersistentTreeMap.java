@@ -0,0 +1,220 @@
+package managers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/* Неизменяемое АВЛ-дерево с копированием пути: put/remove возвращают новую версию за O(log n),
+разделяя с предыдущей все нетронутые узлы. Старые версии остаются валидными, поэтому
+их можно читать из любых потоков без блокировок */
+final class PersistentTreeMap<K, V> {
+
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+
+    private PersistentTreeMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    static <K, V> PersistentTreeMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentTreeMap<>(comparator, null);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int result = comparator.compare(key, node.key);
+            if (result == 0) {
+                return node.value;
+            }
+            node = result < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /* Значение с наибольшим ключом, строго меньшим заданного */
+    V lowerValue(K key) {
+        Node<K, V> node = root;
+        V found = null;
+        while (node != null) {
+            if (comparator.compare(node.key, key) < 0) {
+                found = node.value;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return found;
+    }
+
+    PersistentTreeMap<K, V> put(K key, V value) {
+        return new PersistentTreeMap<>(comparator, insert(root, key, value));
+    }
+
+    PersistentTreeMap<K, V> remove(K key) {
+        if (get(key) == null) {
+            return this;
+        }
+        return new PersistentTreeMap<>(comparator, delete(root, key));
+    }
+
+    List<V> values() {
+        List<V> result = new ArrayList<>(size());
+        for (V value : valuesFrom(null)) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    /* Ленивый обход значений по возрастанию ключа. Узлы не меняются, поэтому поток всегда видит
+    ту версию, из которой получен */
+    Stream<V> stream() {
+        Spliterator<V> spliterator = Spliterators.spliterator(new ValueIterator<>(root, comparator, null), size(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /* Значения по возрастанию ключа, начиная с первого ключа не меньше from (null - с начала) */
+    Iterable<V> valuesFrom(K from) {
+        return () -> new ValueIterator<>(root, comparator, from);
+    }
+
+    private Node<K, V> insert(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int result = comparator.compare(key, node.key);
+        if (result == 0) {
+            return new Node<>(key, value, node.left, node.right);
+        }
+        if (result < 0) {
+            return balance(node.key, node.value, insert(node.left, key, value), node.right);
+        }
+        return balance(node.key, node.value, node.left, insert(node.right, key, value));
+    }
+
+    private Node<K, V> delete(Node<K, V> node, K key) {
+        int result = comparator.compare(key, node.key);
+        if (result < 0) {
+            return balance(node.key, node.value, delete(node.left, key), node.right);
+        }
+        if (result > 0) {
+            return balance(node.key, node.value, node.left, delete(node.right, key));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, deleteMin(node.right));
+    }
+
+    private static <K, V> Node<K, V> deleteMin(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, deleteMin(node.left), node.right);
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int factor = height(left) - height(right);
+        if (factor > 1) {
+            if (height(left.left) < height(left.right)) {
+                Node<K, V> pivot = left.right;
+                return new Node<>(pivot.key, pivot.value,
+                        new Node<>(left.key, left.value, left.left, pivot.left),
+                        new Node<>(key, value, pivot.right, right));
+            }
+            return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+        }
+        if (factor < -1) {
+            if (height(right.right) < height(right.left)) {
+                Node<K, V> pivot = right.left;
+                return new Node<>(pivot.key, pivot.value,
+                        new Node<>(key, value, left, pivot.left),
+                        new Node<>(right.key, right.value, pivot.right, right.right));
+            }
+            return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int height;
+        private final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(PersistentTreeMap.height(left), PersistentTreeMap.height(right));
+            this.size = 1 + PersistentTreeMap.size(left) + PersistentTreeMap.size(right);
+        }
+    }
+
+    private static final class ValueIterator<K, V> implements Iterator<V> {
+
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+        ValueIterator(Node<K, V> root, Comparator<? super K> comparator, K from) {
+            Node<K, V> node = root;
+            while (node != null) {
+                if (from == null || comparator.compare(node.key, from) >= 0) {
+                    path.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public V next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = path.pop();
+            for (Node<K, V> next = node.right; next != null; next = next.left) {
+                path.push(next);
+            }
+            return node.value;
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package managers;
+
+import exceptions.TaskNotFoundException;
+import exceptions.TaskOverlapException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.enums.Status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/* Менеджер, разбитый на независимые шарды - ConcurrentTaskManager со своими хранилищами, приоритетным
+списком, расписанием и индексами. Шард i выдаёт id i + 1, i + 1 + n, i + 1 + 2n, ..., поэтому шард
+любого объекта определяется по id без общей таблицы. Задачи и эпики раскладываются по шардам по кругу,
+подзадача создаётся в шарде своего эпика, и пересчёт эпика не выходит за пределы шарда.
+Записи в разные шарды идут параллельно. Пересечение по времени проверяется по всем шардам, поэтому
+создание и изменение задач со временем сериализуются общей блокировкой расписания. Пакеты берут
+блокировку пакетов на запись: пакет проверяется по всем шардам и применяется целиком, одиночные
+записи на это время ждут. Чтения опрашивают шарды параллельно и сливают упорядоченные ответы;
+чтение нескольких шардов не атомарно и может застать пакет применённым только в части шардов.
+История общая для всех шардов */
+public class ShardedTaskManager implements TaskManager {
+
+    private static final Comparator<Task> taskComparator = Comparator.comparing(
+            Task::getStartTime, Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(Task::getId);
+    private static final Comparator<Task> idComparator = Comparator.comparingInt(Task::getId);
+
+    private final HistoryManager historyManager = new SynchronizedHistoryManager(Managers.getDefaultHistory());
+    private final List<Shard> shards;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final ReentrantReadWriteLock batchLock = new ReentrantReadWriteLock();
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+
+    public ShardedTaskManager() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedTaskManager(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным: " + shardCount);
+        }
+        List<Shard> created = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            created.add(new Shard(i, shardCount, historyManager));
+        }
+        shards = List.copyOf(created);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /* Номер шарда, в котором лежит объект с этим id */
+    int shardIndex(int id) {
+        return Math.floorMod(id - 1, shards.size());
+    }
+
+    @Override
+    public HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return concat(gather(Shard::getAllTasks));
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return concat(gather(Shard::getAllEpics));
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return concat(gather(Shard::getAllSubtasks));
+    }
+
+    /* Каждый шард снимает свой массив ссылок, когда обход до него доходит */
+    @Override
+    public Stream<Task> streamTasks() {
+        return shards.stream().flatMap(Shard::streamTasks);
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return shards.stream().flatMap(Shard::streamEpics);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return shards.stream().flatMap(Shard::streamSubtasks);
+    }
+
+    @Override
+    public List<Task> getTasksPage(int after, int limit) {
+        return merge(gather(shard -> shard.getTasksPage(after, limit)), idComparator, limit);
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int after, int limit) {
+        return merge(gather(shard -> shard.getEpicsPage(after, limit)), idComparator, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int after, int limit) {
+        return merge(gather(shard -> shard.getSubtasksPage(after, limit)), idComparator, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtaskList(Epic epic) {
+        if (epic == null) {
+            return Collections.emptyList();
+        }
+        return shardOf(epic.getId()).getSubtaskList(epic);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return concat(gather(shard -> shard.getTasksByStatus(status)));
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return concat(gather(shard -> shard.getEpicsByStatus(status)));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return concat(gather(shard -> shard.getSubtasksByStatus(status)));
+    }
+
+    /* Каждый шард отдаёт до limit совпадений, из них остаются limit с наименьшими id */
+    @Override
+    public List<Task> search(String query, int limit) {
+        if (query == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<Task> found = concat(gather(shard -> shard.search(query, limit)));
+        found.sort(idComparator);
+        return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        batch(() -> shards.parallelStream().forEach(Shard::deleteAllTasks));
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        batch(() -> shards.parallelStream().forEach(Shard::deleteAllEpics));
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        batch(() -> shards.parallelStream().forEach(Shard::deleteAllSubtasks));
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return shardOf(id).getTaskById(id);
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return shardOf(id).getEpicById(id);
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return shardOf(id).getSubtaskById(id);
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        if (task == null) {
+            return null;
+        }
+        Shard shard = nextShard();
+        return write(task, () -> overlapsOtherShards(task, shard) ? null : shard.createTask(task));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        if (epic == null) {
+            return null;
+        }
+        Shard shard = nextShard();
+        return write(null, () -> shard.createEpic(epic));
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        if (subtask == null) {
+            return null;
+        }
+        Shard shard = shardOf(subtask.getEpicId());
+        return write(subtask, () -> overlapsOtherShards(subtask, shard) ? null : shard.createSubtask(subtask));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (task == null) {
+            return;
+        }
+        Shard shard = shardOf(task.getId());
+        write(task, () -> {
+            if (shard.isUpdatable(task) && overlapsOtherShards(task, shard)) {
+                throw new IllegalArgumentException(
+                        "Задача пересекается с другими задачами или передана некорректная задача");
+            }
+            shard.updateTask(task);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null) {
+            return;
+        }
+        Shard shard = shardOf(epic.getId());
+        write(null, () -> {
+            shard.updateEpic(epic);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (subtask == null) {
+            return;
+        }
+        Shard shard = shardOf(subtask.getId());
+        write(subtask, () -> {
+            if (!shard.isUpdatable(subtask) || !overlapsOtherShards(subtask, shard)) {
+                shard.updateSubtask(subtask);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        Shard shard = shardOf(id);
+        write(null, () -> {
+            shard.deleteTaskById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        Shard shard = shardOf(id);
+        write(null, () -> {
+            shard.deleteEpicById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        Shard shard = shardOf(id);
+        write(null, () -> {
+            shard.deleteSubtaskById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Task> createAll(List<? extends Task> items) {
+        return applyBatch(items, List.of(), List.of());
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> items) {
+        applyBatch(List.of(), items, List.of());
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        applyBatch(List.of(), List.of(), ids);
+    }
+
+    /* Пакет проверяется по всем шардам до первого изменения, поэтому применение в шардах
+    не может упасть на середине и идёт параллельно. Старые интервалы обновляемых задач при проверке
+    не учитываются, поэтому задачи пакета могут меняться местами и между шардами */
+    @Override
+    public List<Task> applyBatch(List<? extends Task> created, List<? extends Task> updated,
+                                 Collection<Integer> deleted) {
+        InMemoryTaskManager.checkBatchIds(updated, deleted);
+        return batch(() -> {
+            for (Task item : created) {
+                if (item == null) {
+                    throw new IllegalArgumentException("Пакет содержит пустую задачу");
+                }
+                if (item instanceof Subtask subtask && !shardOf(subtask.getEpicId()).hasEpic(subtask.getEpicId())) {
+                    throw new TaskNotFoundException("Отсутствует эпик для подзадачи: " + subtask.getEpicId());
+                }
+            }
+            Set<Integer> updatedIds = new HashSet<>();
+            for (Task item : updated) {
+                if (item == null) {
+                    throw new IllegalArgumentException("Пакет содержит пустую задачу");
+                }
+                if (!shardOf(item.getId()).isUpdatable(item)) {
+                    throw new TaskNotFoundException("Некорректный id в пакете: " + item.getId());
+                }
+                updatedIds.add(item.getId());
+            }
+            IntervalTree batch = new IntervalTree();
+            for (int i = 0; i < created.size(); i++) {
+                if (!(created.get(i) instanceof Epic)) {
+                    checkBatchOverlap(batch, -(i + 1), created.get(i), updatedIds);
+                }
+            }
+            for (Task item : updated) {
+                if (!(item instanceof Epic)) {
+                    checkBatchOverlap(batch, item.getId(), item, updatedIds);
+                }
+            }
+
+            Map<Shard, ShardBatch> groups = new LinkedHashMap<>();
+            for (Task item : created) {
+                Shard shard = item instanceof Subtask subtask ? shardOf(subtask.getEpicId()) : nextShard();
+                groups.computeIfAbsent(shard, key -> new ShardBatch()).created.add(item);
+            }
+            for (Task item : updated) {
+                groups.computeIfAbsent(shardOf(item.getId()), key -> new ShardBatch()).updated.add(item);
+            }
+            for (Integer id : deleted) {
+                if (id != null) {
+                    groups.computeIfAbsent(shardOf(id), key -> new ShardBatch()).deleted.add(id);
+                }
+            }
+            groups.entrySet().parallelStream().forEach(group -> group.getKey()
+                    .applyBatch(group.getValue().created, group.getValue().updated, group.getValue().deleted));
+            return new ArrayList<Task>(created);
+        });
+    }
+
+    @Override
+    public Status calculateStatus(Epic epic) {
+        return shardOf(epic.getId()).calculateStatus(epic);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return merge(gather(Shard::getPrioritizedTasks), taskComparator, Integer.MAX_VALUE);
+    }
+
+    /* Слияние снимков шардов, снятых в момент вызова */
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        List<Iterator<Task>> sources = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            sources.add(shard.streamPrioritizedTasks().iterator());
+        }
+        Iterator<Task> merged = merge(sources, taskComparator);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to) {
+        return getTasksInRange(from, to, Integer.MAX_VALUE);
+    }
+
+    /* Каждый шард отдаёт не больше limit первых пересечений, слияние останавливается на limit */
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int limit) {
+        return merge(gather(shard -> shard.getTasksInRange(from, to, limit)), taskComparator, limit);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        return merge(gather(shard -> shard.getNextTasks(after, limit)), taskComparator, limit);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        return shardOf(epicId).getEpicSubtasks(epicId);
+    }
+
+    private Shard shardOf(int id) {
+        return shards.get(shardIndex(id));
+    }
+
+    private Shard nextShard() {
+        return shards.get(Math.floorMod(nextShard.getAndIncrement(), shards.size()));
+    }
+
+    /* Собственный шард проверяет пересечения сам при записи */
+    private boolean overlapsOtherShards(Task task, Shard own) {
+        if (task.getStartTime() == null) {
+            return false;
+        }
+        return shards.parallelStream()
+                .filter(shard -> shard != own)
+                .anyMatch(shard -> shard.overlappingIds(task).stream().anyMatch(id -> id != task.getId()));
+    }
+
+    private void checkBatchOverlap(IntervalTree batch, int batchId, Task task, Set<Integer> updatedIds) {
+        if (task.getStartTime() == null) {
+            return;
+        }
+        boolean overlaps = batch.overlaps(task.getStartTime(), task.getEndTime(), batchId)
+                || shards.parallelStream().anyMatch(shard -> shard.overlappingIds(task).stream()
+                .anyMatch(id -> !updatedIds.contains(id)));
+        if (overlaps) {
+            throw new TaskOverlapException("Задача пакета пересекается с другими задачами: " + task.getName());
+        }
+        batch.add(batchId, task.getStartTime(), task.getEndTime());
+    }
+
+    /* Одиночная запись идёт параллельно с записями в другие шарды. Запись задачи со временем
+    держит блокировку расписания, чтобы между проверкой шардов и записью никто не занял интервал */
+    private <T> T write(Task timed, Supplier<T> action) {
+        boolean scheduled = timed != null && timed.getStartTime() != null;
+        batchLock.readLock().lock();
+        if (scheduled) {
+            scheduleLock.lock();
+        }
+        try {
+            return action.get();
+        } finally {
+            if (scheduled) {
+                scheduleLock.unlock();
+            }
+            batchLock.readLock().unlock();
+        }
+    }
+
+    private <T> T batch(Supplier<T> action) {
+        batchLock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+    }
+
+    private void batch(Runnable action) {
+        batch(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> List<List<T>> gather(Function<Shard, List<T>> query) {
+        return shards.parallelStream().map(query).toList();
+    }
+
+    private static <T> List<T> concat(List<List<T>> parts) {
+        int size = 0;
+        for (List<T> part : parts) {
+            size += part.size();
+        }
+        List<T> result = new ArrayList<>(size);
+        for (List<T> part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    private static <T> List<T> merge(List<List<T>> parts, Comparator<? super T> order, int limit) {
+        List<T> result = new ArrayList<>();
+        List<Iterator<T>> sources = new ArrayList<>(parts.size());
+        for (List<T> part : parts) {
+            sources.add(part.iterator());
+        }
+        for (Iterator<T> merged = merge(sources, order); merged.hasNext() && result.size() < limit; ) {
+            result.add(merged.next());
+        }
+        return result;
+    }
+
+    /* k-путевое слияние упорядоченных последовательностей через кучу текущих голов: O(log k) на элемент */
+    private static <T> Iterator<T> merge(List<Iterator<T>> sources, Comparator<? super T> order) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (first, second) -> order.compare(first.value(), second.value()));
+        for (Iterator<T> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), source));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Head<T> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                if (head.source().hasNext()) {
+                    heads.add(new Head<>(head.source().next(), head.source()));
+                }
+                return head.value();
+            }
+        };
+    }
+
+    private record Head<T>(T value, Iterator<T> source) {
+    }
+
+    /* Часть пакета, которая применяется в одном шарде */
+    private static final class ShardBatch {
+        private final List<Task> created = new ArrayList<>();
+        private final List<Task> updated = new ArrayList<>();
+        private final List<Integer> deleted = new ArrayList<>();
+    }
+
+    /* Шард выдаёт id только из своего класса вычетов по модулю числа шардов */
+    private static final class Shard extends ConcurrentTaskManager {
+
+        private final AtomicInteger lastId;
+        private final int step;
+
+        Shard(int index, int count, HistoryManager history) {
+            historyManager = history;
+            lastId = new AtomicInteger(index + 1 - count);
+            step = count;
+        }
+
+        @Override
+        public int generateId() {
+            return lastId.addAndGet(step);
+        }
+    }
+}
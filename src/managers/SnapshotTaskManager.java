@@ -0,0 +1,909 @@
+package managers;
+
+import exceptions.TaskNotFoundException;
+import exceptions.TaskOverlapException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.enums.Status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/* Менеджер с многоверсионным состоянием. Всё состояние - неизменяемый Snapshot из персистентных
+деревьев, опубликованный через volatile-ссылку. Писатели сериализуются между собой, строят новую
+версию с разделением нетронутых узлов и публикуют её одной записью ссылки. Читатели берут текущую
+версию и работают с ней без блокировок, поэтому чтения никогда не ждут писателей.
+Хранимые объекты - копии переданных и не должны изменяться вызывающим кодом.
+Агрегаты эпика (статус, время) пересчитываются по его подзадачам при каждом изменении
+подзадачи, так как изменяемые счётчики эпика нельзя разделять между версиями */
+public class SnapshotTaskManager implements TaskManager {
+
+    private static final Comparator<Task> taskComparator = Comparator.comparing(
+            Task::getStartTime, Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(Task::getId);
+
+    private final HistoryManager historyManager = new SynchronizedHistoryManager(Managers.getDefaultHistory());
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Snapshot current = new Snapshot(0, 0,
+            PersistentTreeMap.empty(Comparator.naturalOrder()),
+            PersistentTreeMap.empty(Comparator.naturalOrder()),
+            PersistentTreeMap.empty(Comparator.naturalOrder()),
+            PersistentTreeMap.empty(taskComparator));
+
+    /* Согласованная версия всего состояния для серии чтений */
+    public Snapshot getSnapshot() {
+        return current;
+    }
+
+    public long getVersion() {
+        return current.getVersion();
+    }
+
+    @Override
+    public HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return current.getAllTasks();
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return current.getAllEpics();
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return current.getAllSubtasks();
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return current.tasks.stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return current.epics.stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return current.subtasks.stream();
+    }
+
+    /* Деревья версии упорядочены по id, поэтому страница - это обход от первого id больше after */
+    @Override
+    public List<Task> getTasksPage(int after, int limit) {
+        return page(current.tasks, after, limit);
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int after, int limit) {
+        return page(current.epics, after, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int after, int limit) {
+        return page(current.subtasks, after, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtaskList(Epic epic) {
+        Snapshot snapshot = current;
+        if (epic == null || !epic.equals(snapshot.epics.get(epic.getId()))) {
+            return Collections.emptyList();
+        }
+        return snapshot.getEpicSubtasks(epic.getId());
+    }
+
+    /* Отдельного индекса по статусу версии не держат: чтение идёт без блокировок по
+    неизменяемой версии, а поддержка ещё одного дерева удорожила бы каждую запись */
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return withStatus(current.tasks.values(), status);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return withStatus(current.epics.values(), status);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return withStatus(current.subtasks.values(), status);
+    }
+
+    /* Поиск проверяет версию целиком по тем же правилам, что и индекс InMemoryTaskManager */
+    @Override
+    public List<Task> search(String query, int limit) {
+        List<Task> result = new ArrayList<>();
+        if (query == null || limit <= 0) {
+            return result;
+        }
+        List<List<String>> clauses = TextIndex.parseQuery(query);
+        Snapshot snapshot = current;
+        List<Task> candidates = new ArrayList<>(snapshot.tasks.values());
+        candidates.addAll(snapshot.epics.values());
+        candidates.addAll(snapshot.subtasks.values());
+        for (Task task : candidates) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (TextIndex.matches(clauses, task.getName(), task.getDescription())) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return viewed(current.tasks.get(id));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return viewed(current.epics.get(id));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return viewed(current.subtasks.get(id));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return current.prioritized.values();
+    }
+
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return current.prioritized.stream();
+    }
+
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to) {
+        return current.getTasksInRange(from, to);
+    }
+
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int limit) {
+        return current.getTasksInRange(from, to, limit);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        return current.getNextTasks(after, limit);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int id) {
+        Snapshot snapshot = current;
+        if (viewed(snapshot.epics.get(id)) == null) {
+            return Collections.emptyList();
+        }
+        return snapshot.getEpicSubtasks(id);
+    }
+
+    @Override
+    public Status calculateStatus(Epic epic) {
+        return current.calculateStatus(epic.getEpicSubtasks());
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        if (task == null) {
+            return null;
+        }
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            if (snapshot.overlaps(task.getStartTime(), task.getEndTime())) {
+                return null;
+            }
+            task.setId(snapshot.lastId + 1);
+            Task stored = copy(task);
+            publish(snapshot.lastId + 1, snapshot.tasks.put(stored.getId(), stored), snapshot.epics,
+                    snapshot.subtasks, snapshot.prioritized.put(stored, stored));
+            return task;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        if (epic == null) {
+            return null;
+        }
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            epic.setId(snapshot.lastId + 1);
+            Epic stored = new Epic(epic.getId(), epic.getName(), epic.getDescription(), Status.NEW);
+            publish(snapshot.lastId + 1, snapshot.tasks, snapshot.epics.put(stored.getId(), stored),
+                    snapshot.subtasks, snapshot.prioritized);
+            return epic;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        if (subtask == null) {
+            return null;
+        }
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            Epic epic = snapshot.epics.get(subtask.getEpicId());
+            if (epic == null || snapshot.overlaps(subtask.getStartTime(), subtask.getEndTime())) {
+                return null;
+            }
+            subtask.setId(snapshot.lastId + 1);
+            Subtask stored = (Subtask) copy(subtask);
+            PersistentTreeMap<Integer, Subtask> subtasks = snapshot.subtasks.put(stored.getId(), stored);
+            List<Integer> subtaskIds = new ArrayList<>(epic.getEpicSubtasks());
+            subtaskIds.add(stored.getId());
+            Epic updatedEpic = rebuildEpic(epic, subtaskIds, subtasks);
+            publish(snapshot.lastId + 1, snapshot.tasks, snapshot.epics.put(epic.getId(), updatedEpic),
+                    subtasks, snapshot.prioritized.put(stored, stored));
+            return subtask;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (task == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            Task existing = snapshot.tasks.get(task.getId());
+            if (existing == null) {
+                return;
+            }
+            if (task.getStatus() == null) {
+                task.setStatus(existing.getStatus());
+            }
+            PersistentTreeMap<Task, Task> prioritized = snapshot.prioritized.remove(existing);
+            if (Snapshot.overlaps(prioritized, task.getStartTime(), task.getEndTime())) {
+                throw new IllegalArgumentException(
+                        "Задача пересекается с другими задачами или передана некорректная задача");
+            }
+            Task stored = copy(task);
+            publish(snapshot.lastId, snapshot.tasks.put(stored.getId(), stored), snapshot.epics,
+                    snapshot.subtasks, prioritized.put(stored, stored));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            Epic existing = snapshot.epics.get(epic.getId());
+            if (existing == null) {
+                return;
+            }
+            Epic updated = rebuildEpic(existing, existing.getEpicSubtasks(), snapshot.subtasks);
+            updated.setName(epic.getName());
+            updated.setDescription(epic.getDescription());
+            publish(snapshot.lastId, snapshot.tasks, snapshot.epics.put(updated.getId(), updated),
+                    snapshot.subtasks, snapshot.prioritized);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (subtask == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            Subtask existing = snapshot.subtasks.get(subtask.getId());
+            Epic epic = snapshot.epics.get(subtask.getEpicId());
+            if (existing == null || epic == null || !epic.containsSubtask(subtask.getId())) {
+                return;
+            }
+            PersistentTreeMap<Task, Task> prioritized = snapshot.prioritized.remove(existing);
+            if (Snapshot.overlaps(prioritized, subtask.getStartTime(), subtask.getEndTime())) {
+                return;
+            }
+            if (subtask.getStatus() == null) {
+                subtask.setStatus(Status.NEW);
+            }
+            Subtask stored = (Subtask) copy(subtask);
+            PersistentTreeMap<Integer, Subtask> subtasks = snapshot.subtasks.put(stored.getId(), stored);
+            Epic updatedEpic = rebuildEpic(epic, epic.getEpicSubtasks(), subtasks);
+            publish(snapshot.lastId, snapshot.tasks, snapshot.epics.put(epic.getId(), updatedEpic),
+                    subtasks, prioritized.put(stored, stored));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            Task existing = snapshot.tasks.get(id);
+            if (existing == null) {
+                return;
+            }
+            publish(snapshot.lastId, snapshot.tasks.remove(id), snapshot.epics, snapshot.subtasks,
+                    snapshot.prioritized.remove(existing));
+            historyManager.remove(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            Epic existing = snapshot.epics.get(id);
+            if (existing == null) {
+                return;
+            }
+            PersistentTreeMap<Integer, Subtask> subtasks = snapshot.subtasks;
+            PersistentTreeMap<Task, Task> prioritized = snapshot.prioritized;
+            for (Integer subtaskId : existing.getEpicSubtasks()) {
+                Subtask subtask = subtasks.get(subtaskId);
+                if (subtask != null) {
+                    subtasks = subtasks.remove(subtaskId);
+                    prioritized = prioritized.remove(subtask);
+                }
+                historyManager.remove(subtaskId);
+            }
+            publish(snapshot.lastId, snapshot.tasks, snapshot.epics.remove(id), subtasks, prioritized);
+            historyManager.remove(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            Subtask existing = snapshot.subtasks.get(id);
+            if (existing == null) {
+                return;
+            }
+            PersistentTreeMap<Integer, Subtask> subtasks = snapshot.subtasks.remove(id);
+            PersistentTreeMap<Integer, Epic> epics = snapshot.epics;
+            Epic epic = epics.get(existing.getEpicId());
+            if (epic != null) {
+                List<Integer> subtaskIds = new ArrayList<>(epic.getEpicSubtasks());
+                subtaskIds.remove(Integer.valueOf(id));
+                epics = epics.put(epic.getId(), rebuildEpic(epic, subtaskIds, subtasks));
+            }
+            publish(snapshot.lastId, snapshot.tasks, epics, subtasks, snapshot.prioritized.remove(existing));
+            historyManager.remove(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            PersistentTreeMap<Task, Task> prioritized = snapshot.prioritized;
+            for (Task task : snapshot.tasks.values()) {
+                prioritized = prioritized.remove(task);
+                historyManager.remove(task.getId());
+            }
+            publish(snapshot.lastId, PersistentTreeMap.empty(Comparator.naturalOrder()), snapshot.epics,
+                    snapshot.subtasks, prioritized);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            PersistentTreeMap<Task, Task> prioritized = snapshot.prioritized;
+            for (Subtask subtask : snapshot.subtasks.values()) {
+                prioritized = prioritized.remove(subtask);
+                historyManager.remove(subtask.getId());
+            }
+            for (Epic epic : snapshot.epics.values()) {
+                historyManager.remove(epic.getId());
+            }
+            publish(snapshot.lastId, snapshot.tasks, PersistentTreeMap.empty(Comparator.naturalOrder()),
+                    PersistentTreeMap.empty(Comparator.naturalOrder()), prioritized);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            PersistentTreeMap<Task, Task> prioritized = snapshot.prioritized;
+            for (Subtask subtask : snapshot.subtasks.values()) {
+                prioritized = prioritized.remove(subtask);
+                historyManager.remove(subtask.getId());
+            }
+            PersistentTreeMap<Integer, Subtask> subtasks = PersistentTreeMap.empty(Comparator.naturalOrder());
+            PersistentTreeMap<Integer, Epic> epics = snapshot.epics;
+            for (Epic epic : snapshot.epics.values()) {
+                epics = epics.put(epic.getId(), rebuildEpic(epic, List.of(), subtasks));
+            }
+            publish(snapshot.lastId, snapshot.tasks, epics, subtasks, prioritized);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> createAll(List<? extends Task> items) {
+        return applyBatch(items, List.of(), List.of());
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> items) {
+        applyBatch(List.of(), items, List.of());
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        applyBatch(List.of(), List.of(), ids);
+    }
+
+    /* Пакет проверяется и применяется к локальным версиям деревьев, поэтому пересечения внутри
+    пакета видны так же, как с уже сохранёнными задачами. Обновления идут первыми: их старые
+    интервалы снимаются до проверки созданий, как и в InMemoryTaskManager. Публикуется одна версия
+    на пакет, каждый затронутый эпик пересобирается на каждом шаге один раз. При ошибке ничего
+    не публикуется, а переданные задачи не меняются */
+    @Override
+    public List<Task> applyBatch(List<? extends Task> created, List<? extends Task> updated,
+                                 Collection<Integer> deleted) {
+        InMemoryTaskManager.checkBatchIds(updated, deleted);
+        writeLock.lock();
+        try {
+            Snapshot snapshot = current;
+            Snapshot next = withUpdated(snapshot, updated);
+            next = withCreated(next, created);
+
+            for (Task item : updated) {
+                if (item instanceof Subtask) {
+                    item.setStatus(next.subtasks.get(item.getId()).getStatus());
+                } else if (!(item instanceof Epic)) {
+                    item.setStatus(next.tasks.get(item.getId()).getStatus());
+                }
+            }
+            List<Task> result = new ArrayList<>(created.size());
+            int id = snapshot.lastId;
+            for (Task item : created) {
+                item.setId(++id);
+                result.add(item);
+            }
+            next = withDeleted(next, deleted);
+            publish(next.lastId, next.tasks, next.epics, next.subtasks, next.prioritized);
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static Snapshot withCreated(Snapshot snapshot, List<? extends Task> items) {
+        int lastId = snapshot.lastId;
+        PersistentTreeMap<Integer, Task> tasks = snapshot.tasks;
+        PersistentTreeMap<Integer, Epic> epics = snapshot.epics;
+        PersistentTreeMap<Integer, Subtask> subtasks = snapshot.subtasks;
+        PersistentTreeMap<Task, Task> prioritized = snapshot.prioritized;
+        Map<Integer, List<Integer>> addedSubtasks = new LinkedHashMap<>();
+        for (Task item : items) {
+            if (item == null) {
+                throw new IllegalArgumentException("Пакет содержит пустую задачу");
+            }
+            int id = ++lastId;
+            if (item instanceof Epic) {
+                epics = epics.put(id, new Epic(id, item.getName(), item.getDescription(), Status.NEW));
+                continue;
+            }
+            if (item instanceof Subtask subtask && snapshot.epics.get(subtask.getEpicId()) == null) {
+                throw new TaskNotFoundException("Отсутствует эпик для подзадачи: " + subtask.getEpicId());
+            }
+            if (Snapshot.overlaps(prioritized, item.getStartTime(), item.getEndTime())) {
+                throw new TaskOverlapException("Задача пакета пересекается с другими задачами: " + item.getName());
+            }
+            Task stored = copy(item);
+            stored.setId(id);
+            prioritized = prioritized.put(stored, stored);
+            if (stored instanceof Subtask subtask) {
+                subtasks = subtasks.put(id, subtask);
+                addedSubtasks.computeIfAbsent(subtask.getEpicId(), epicId -> new ArrayList<>()).add(id);
+            } else {
+                tasks = tasks.put(id, stored);
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> entry : addedSubtasks.entrySet()) {
+            Epic epic = epics.get(entry.getKey());
+            List<Integer> subtaskIds = new ArrayList<>(epic.getEpicSubtasks());
+            subtaskIds.addAll(entry.getValue());
+            epics = epics.put(epic.getId(), rebuildEpic(epic, subtaskIds, subtasks));
+        }
+        return new Snapshot(snapshot.version, lastId, tasks, epics, subtasks, prioritized);
+    }
+
+    private static Snapshot withUpdated(Snapshot snapshot, List<? extends Task> items) {
+        PersistentTreeMap<Integer, Task> tasks = snapshot.tasks;
+        PersistentTreeMap<Integer, Epic> epics = snapshot.epics;
+        PersistentTreeMap<Integer, Subtask> subtasks = snapshot.subtasks;
+        PersistentTreeMap<Task, Task> prioritized = snapshot.prioritized;
+        List<Task> stored = new ArrayList<>(items.size());
+        for (Task item : items) {
+            Task saved = savedForUpdate(snapshot, item);
+            prioritized = prioritized.remove(saved);
+            Task copy;
+            if (item instanceof Epic) {
+                copy = item;
+            } else {
+                copy = copy(item);
+                if (copy.getStatus() == null) {
+                    copy.setStatus(item instanceof Subtask ? Status.NEW : saved.getStatus());
+                }
+            }
+            stored.add(copy);
+        }
+        Set<Integer> affectedEpics = new LinkedHashSet<>();
+        for (Task task : stored) {
+            if (task instanceof Epic) {
+                affectedEpics.add(task.getId());
+                continue;
+            }
+            if (Snapshot.overlaps(prioritized, task.getStartTime(), task.getEndTime())) {
+                throw new TaskOverlapException("Задача пакета пересекается с другими задачами: " + task.getName());
+            }
+            prioritized = prioritized.put(task, task);
+            if (task instanceof Subtask subtask) {
+                subtasks = subtasks.put(subtask.getId(), subtask);
+                affectedEpics.add(subtask.getEpicId());
+            } else {
+                tasks = tasks.put(task.getId(), task);
+            }
+        }
+        for (Integer epicId : affectedEpics) {
+            Epic epic = epics.get(epicId);
+            epics = epics.put(epicId, rebuildEpic(epic, epic.getEpicSubtasks(), subtasks));
+        }
+        for (Task task : stored) {
+            if (task instanceof Epic epic) {
+                Epic updated = epics.get(epic.getId());
+                updated.setName(epic.getName());
+                updated.setDescription(epic.getDescription());
+            }
+        }
+        return new Snapshot(snapshot.version, snapshot.lastId, tasks, epics, subtasks, prioritized);
+    }
+
+    private Snapshot withDeleted(Snapshot snapshot, Collection<Integer> ids) {
+        PersistentTreeMap<Integer, Task> tasks = snapshot.tasks;
+        PersistentTreeMap<Integer, Epic> epics = snapshot.epics;
+        PersistentTreeMap<Integer, Subtask> subtasks = snapshot.subtasks;
+        PersistentTreeMap<Task, Task> prioritized = snapshot.prioritized;
+        Set<Integer> affectedEpics = new LinkedHashSet<>();
+        for (Integer id : ids) {
+            Task task = tasks.get(id);
+            Epic epic = epics.get(id);
+            Subtask subtask = subtasks.get(id);
+            if (task != null) {
+                tasks = tasks.remove(id);
+                prioritized = prioritized.remove(task);
+            } else if (epic != null) {
+                for (Integer subtaskId : epic.getEpicSubtasks()) {
+                    Subtask removed = subtasks.get(subtaskId);
+                    if (removed != null) {
+                        subtasks = subtasks.remove(subtaskId);
+                        prioritized = prioritized.remove(removed);
+                    }
+                    historyManager.remove(subtaskId);
+                }
+                epics = epics.remove(id);
+            } else if (subtask != null) {
+                subtasks = subtasks.remove(id);
+                prioritized = prioritized.remove(subtask);
+                affectedEpics.add(subtask.getEpicId());
+            } else {
+                continue;
+            }
+            historyManager.remove(id);
+        }
+        for (Integer epicId : affectedEpics) {
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                List<Integer> subtaskIds = new ArrayList<>();
+                for (Integer subtaskId : epic.getEpicSubtasks()) {
+                    if (subtasks.get(subtaskId) != null) {
+                        subtaskIds.add(subtaskId);
+                    }
+                }
+                epics = epics.put(epicId, rebuildEpic(epic, subtaskIds, subtasks));
+            }
+        }
+        return new Snapshot(snapshot.version, snapshot.lastId, tasks, epics, subtasks, prioritized);
+    }
+
+    private static Task savedForUpdate(Snapshot snapshot, Task item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Пакет содержит пустую задачу");
+        }
+        Task saved;
+        if (item instanceof Epic) {
+            saved = snapshot.epics.get(item.getId());
+        } else if (item instanceof Subtask subtask) {
+            Epic epic = snapshot.epics.get(subtask.getEpicId());
+            saved = epic != null && epic.containsSubtask(subtask.getId()) ? snapshot.subtasks.get(subtask.getId()) : null;
+        } else {
+            saved = snapshot.tasks.get(item.getId());
+        }
+        if (saved == null) {
+            throw new TaskNotFoundException("Некорректный id в пакете: " + item.getId());
+        }
+        return saved;
+    }
+
+    private static <T extends Task> List<T> page(PersistentTreeMap<Integer, T> items, int after, int limit) {
+        List<T> result = new ArrayList<>();
+        if (limit <= 0 || after == Integer.MAX_VALUE) {
+            return result;
+        }
+        for (T item : items.valuesFrom(after + 1)) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static <T extends Task> List<T> withStatus(List<T> items, Status status) {
+        List<T> result = new ArrayList<>();
+        for (T item : items) {
+            if (item.getStatus() == status) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    private <T extends Task> T viewed(T task) {
+        if (task != null) {
+            historyManager.add(task);
+        }
+        return task;
+    }
+
+    private void publish(int lastId, PersistentTreeMap<Integer, Task> tasks, PersistentTreeMap<Integer, Epic> epics,
+                         PersistentTreeMap<Integer, Subtask> subtasks, PersistentTreeMap<Task, Task> prioritized) {
+        current = new Snapshot(current.version + 1, lastId, tasks, epics, subtasks, prioritized);
+    }
+
+    private static Task copy(Task task) {
+        if (task instanceof Subtask subtask) {
+            return new Subtask(subtask.getId(), subtask.getName(), subtask.getDescription(), subtask.getStatus(),
+                    subtask.getEpicId(), subtask.getStartTime(), subtask.getDuration());
+        }
+        return new Task(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                task.getStartTime(), task.getDuration());
+    }
+
+    /* Новая версия эпика с заданным набором подзадач и пересчитанными по ним агрегатами */
+    private static Epic rebuildEpic(Epic epic, List<Integer> subtaskIds, PersistentTreeMap<Integer, Subtask> subtasks) {
+        Epic rebuilt = new Epic(epic.getId(), epic.getName(), epic.getDescription(), Status.NEW);
+        for (Integer subtaskId : subtaskIds) {
+            Subtask subtask = subtasks.get(subtaskId);
+            rebuilt.addSubtask(subtaskId);
+            rebuilt.addSubtaskStatus(subtask.getStatus() != null ? subtask.getStatus() : Status.NEW);
+            rebuilt.addSubtaskTime(subtask.getStartTime(), subtask.getEndTime(), subtask.getDuration());
+        }
+        rebuilt.setStatus(statusOf(rebuilt));
+        return rebuilt;
+    }
+
+    private static Status statusOf(Epic epic) {
+        int newCount = epic.getSubtaskCount(Status.NEW);
+        int doneCount = epic.getSubtaskCount(Status.DONE);
+        int total = newCount + epic.getSubtaskCount(Status.IN_PROGRESS) + doneCount;
+        if (newCount == total) return Status.NEW;
+        if (doneCount == total) return Status.DONE;
+        return Status.IN_PROGRESS;
+    }
+
+    /* Неизменяемая версия состояния менеджера */
+    public static final class Snapshot {
+
+        private final long version;
+        private final int lastId;
+        private final PersistentTreeMap<Integer, Task> tasks;
+        private final PersistentTreeMap<Integer, Epic> epics;
+        private final PersistentTreeMap<Integer, Subtask> subtasks;
+        private final PersistentTreeMap<Task, Task> prioritized;
+
+        private Snapshot(long version, int lastId, PersistentTreeMap<Integer, Task> tasks,
+                         PersistentTreeMap<Integer, Epic> epics, PersistentTreeMap<Integer, Subtask> subtasks,
+                         PersistentTreeMap<Task, Task> prioritized) {
+            this.version = version;
+            this.lastId = lastId;
+            this.tasks = tasks;
+            this.epics = epics;
+            this.subtasks = subtasks;
+            this.prioritized = prioritized;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Task getTask(int id) {
+            return tasks.get(id);
+        }
+
+        public Epic getEpic(int id) {
+            return epics.get(id);
+        }
+
+        public Subtask getSubtask(int id) {
+            return subtasks.get(id);
+        }
+
+        public List<Task> getAllTasks() {
+            return tasks.values();
+        }
+
+        public List<Epic> getAllEpics() {
+            return epics.values();
+        }
+
+        public List<Subtask> getAllSubtasks() {
+            return subtasks.values();
+        }
+
+        public List<Task> getPrioritizedTasks() {
+            return prioritized.values();
+        }
+
+        public List<Subtask> getEpicSubtasks(int epicId) {
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                return Collections.emptyList();
+            }
+            List<Subtask> result = new ArrayList<>();
+            for (Integer subtaskId : epic.getEpicSubtasks()) {
+                Subtask subtask = subtasks.get(subtaskId);
+                if (subtask != null) {
+                    result.add(subtask);
+                }
+            }
+            return result;
+        }
+
+        /* Интервалы ненулевой длины в версии не пересекаются, поэтому из начавшихся раньше from
+        с диапазоном может пересекаться только последний такой интервал. Задачи нулевой длины
+        перед from с диапазоном не пересекаются и пропускаются */
+        public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to) {
+            return getTasksInRange(from, to, Integer.MAX_VALUE);
+        }
+
+        public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int limit) {
+            List<Task> result = new ArrayList<>();
+            if ((from != null && to != null && !from.isBefore(to)) || limit <= 0) {
+                return result;
+            }
+            if (from != null) {
+                Task before = prioritized.lowerValue(probe(from));
+                while (before != null && before.getEndTime().isEqual(before.getStartTime())) {
+                    before = prioritized.lowerValue(before);
+                }
+                if (before != null && before.getEndTime().isAfter(from)) {
+                    result.add(before);
+                }
+            }
+            for (Task task : prioritized.valuesFrom(from == null ? null : probe(from))) {
+                if (task.getStartTime() == null || (to != null && !task.getStartTime().isBefore(to))
+                        || result.size() >= limit) {
+                    break;
+                }
+                if (from == null || task.getEndTime().isAfter(from)) {
+                    result.add(task);
+                }
+            }
+            return result;
+        }
+
+        public List<Task> getNextTasks(LocalDateTime after, int limit) {
+            List<Task> result = new ArrayList<>();
+            for (Task task : prioritized.valuesFrom(after == null ? null : probe(after))) {
+                if (task.getStartTime() == null || result.size() >= limit) {
+                    break;
+                }
+                result.add(task);
+            }
+            return result;
+        }
+
+        private Status calculateStatus(List<Integer> subtaskIds) {
+            Epic counted = new Epic();
+            for (Integer subtaskId : subtaskIds) {
+                Subtask subtask = subtasks.get(subtaskId);
+                if (subtask != null) {
+                    counted.addSubtaskStatus(subtask.getStatus() != null ? subtask.getStatus() : Status.NEW);
+                }
+            }
+            return statusOf(counted);
+        }
+
+        private boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return overlaps(prioritized, start, end);
+        }
+
+        /* Среди непересекающихся интервалов, отсортированных по началу, окончания тоже упорядочены,
+        поэтому достаточно проверить последний интервал ненулевой длины, начавшийся до end,
+        и стоящие после него задачи нулевой длины */
+        private static boolean overlaps(PersistentTreeMap<Task, Task> prioritized,
+                                        LocalDateTime start, LocalDateTime end) {
+            if (start == null) {
+                return false;
+            }
+            Task before = prioritized.lowerValue(probe(end));
+            while (before != null) {
+                if (before.getEndTime().isAfter(start)) {
+                    return true;
+                }
+                if (!before.getEndTime().isEqual(before.getStartTime())) {
+                    return false;
+                }
+                before = prioritized.lowerValue(before);
+            }
+            return false;
+        }
+
+        private static Task probe(LocalDateTime start) {
+            return new Task(Integer.MIN_VALUE, null, null, null, start, null);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package managers;
+
+import java.util.Arrays;
+
+/* Упорядоченное множество int на отсортированном массиве для постраничного обхода по возрастанию.
+Id выдаются по возрастанию, поэтому добавление почти всегда дописывает в конец за O(1);
+вставка в середину (загрузка из файла, параллельная выдача id) сдвигает хвост массива.
+Удаление только помечает элемент, массив уплотняется, когда помеченных становится больше живых */
+final class SortedIntSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] values = new int[MIN_CAPACITY];
+    private boolean[] removed = new boolean[MIN_CAPACITY];
+    private int length;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void add(int value) {
+        if (length == 0 || value > values[length - 1]) {
+            ensureCapacity();
+            values[length] = value;
+            removed[length] = false;
+            length++;
+            size++;
+            return;
+        }
+        int index = Arrays.binarySearch(values, 0, length, value);
+        if (index >= 0) {
+            if (removed[index]) {
+                removed[index] = false;
+                size++;
+            }
+            return;
+        }
+        int position = -index - 1;
+        ensureCapacity();
+        System.arraycopy(values, position, values, position + 1, length - position);
+        System.arraycopy(removed, position, removed, position + 1, length - position);
+        values[position] = value;
+        removed[position] = false;
+        length++;
+        size++;
+    }
+
+    void remove(int value) {
+        int index = Arrays.binarySearch(values, 0, length, value);
+        if (index < 0 || removed[index]) {
+            return;
+        }
+        removed[index] = true;
+        size--;
+        if (length - size > size && length > MIN_CAPACITY) {
+            compact();
+        }
+    }
+
+    void clear() {
+        length = 0;
+        size = 0;
+    }
+
+    /* До limit элементов, строго больших after, по возрастанию */
+    int[] after(int after, int limit) {
+        int index = Arrays.binarySearch(values, 0, length, after);
+        index = index >= 0 ? index + 1 : -index - 1;
+        int[] result = new int[Math.max(0, Math.min(limit, size))];
+        int count = 0;
+        for (; index < length && count < result.length; index++) {
+            if (!removed[index]) {
+                result[count++] = values[index];
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private void ensureCapacity() {
+        if (length == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+            removed = Arrays.copyOf(removed, removed.length * 2);
+        }
+    }
+
+    private void compact() {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (!removed[i]) {
+                values[count] = values[i];
+                removed[count] = false;
+                count++;
+            }
+        }
+        length = count;
+    }
+}
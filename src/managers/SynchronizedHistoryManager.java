@@ -0,0 +1,48 @@
+package managers;
+
+import model.Task;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/* История общая для всех потоков и меняется даже при чтении задач, поэтому все обращения к ней
+сериализуются на одном мониторе */
+class SynchronizedHistoryManager implements HistoryManager {
+
+    private final HistoryManager delegate;
+
+    SynchronizedHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void add(Task task) {
+        delegate.add(task);
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public synchronized void replace(Task task) {
+        delegate.replace(task);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return delegate.getHistory();
+    }
+
+    /* Другие потоки меняют историю во время обхода, поэтому под монитором снимается массив ссылок */
+    @Override
+    public Stream<Task> streamHistory() {
+        Task[] history;
+        synchronized (this) {
+            history = delegate.streamHistory().toArray(Task[]::new);
+        }
+        return Arrays.stream(history);
+    }
+}
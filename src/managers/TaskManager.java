@@ -5,7 +5,10 @@ import model.Subtask;
 import model.Task;
 import model.enums.Status;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TaskManager {
 
@@ -15,8 +18,33 @@ public interface TaskManager {
 
     List<Subtask> getAllSubtasks();
 
+    /* Потоки stream* не копируют хранилище заранее, а вычисляются лениво при обходе.
+    Содержимое зависит от реализации: в InMemoryTaskManager это живое представление, и поток нужно
+    дочитать до следующего изменения менеджера; в SnapshotTaskManager - версия на момент вызова;
+    в ConcurrentTaskManager - снимок ссылок, снятый под блокировкой чтения. Изменять задачи
+    через поток нельзя */
+    Stream<Task> streamTasks();
+
+    Stream<Epic> streamEpics();
+
+    Stream<Subtask> streamSubtasks();
+
+    List<Task> getTasksPage(int after, int limit);
+
+    List<Epic> getEpicsPage(int after, int limit);
+
+    List<Subtask> getSubtasksPage(int after, int limit);
+
     List<Subtask> getSubtaskList(Epic epic);
 
+    List<Task> getTasksByStatus(Status status);
+
+    List<Epic> getEpicsByStatus(Status status);
+
+    List<Subtask> getSubtasksByStatus(Status status);
+
+    List<Task> search(String query, int limit);
+
     void deleteAllTasks();
 
     void deleteAllEpics();
@@ -47,12 +75,33 @@ public interface TaskManager {
 
     void deleteSubtaskById(int id);
 
+    List<Task> createAll(List<? extends Task> items);
+
+    void updateAll(List<? extends Task> items);
+
+    void deleteAll(Collection<Integer> ids);
+
+    /* Создания, обновления и удаления одним пакетом: всё проверяется до первого изменения
+    и применяется целиком или не применяется совсем. Пересечение по времени - TaskOverlapException,
+    отсутствующий эпик или id обновления - TaskNotFoundException. Возвращает созданные задачи */
+    List<Task> applyBatch(List<? extends Task> created, List<? extends Task> updated, Collection<Integer> deleted);
+
     Status calculateStatus(Epic epic);
 
     List<Task> getHistory();
 
     List<Task> getPrioritizedTasks();
 
+    Stream<Task> streamPrioritizedTasks();
+
+    List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to);
+
+    /* Первые limit задач, пересекающихся с [from, to), в порядке приоритетного списка.
+    Пустая граница не ограничивает диапазон, обход останавливается на limit */
+    List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to, int limit);
+
+    List<Task> getNextTasks(LocalDateTime after, int limit);
+
     List<Subtask> getEpicSubtasks(int id);
 
     HistoryManager getHistoryManager();
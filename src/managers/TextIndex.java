@@ -0,0 +1,159 @@
+package managers;
+
+import model.IntLinkedSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/* Инвертированный индекс слов названий и описаний: слово -> id задач в порядке индексации.
+Слово - непрерывная последовательность букв и цифр любого алфавита в нижнем регистре,
+ё приводится к е. Слова, с которыми id проиндексирован, хранятся отдельно, поэтому
+удаление не зависит от текущего текста объекта.
+Запрос: слова через пробел должны встречаться все (И), группы разделяются словом OR (ИЛИ).
+Поиск обходит только списки id слов запроса, начиная с самого короткого, и не зависит
+от общего числа задач */
+final class TextIndex {
+
+    static final String OR = "or";
+
+    private final Map<String, IntLinkedSet> postings = new HashMap<>();
+    private final IntObjectMap<String[]> indexedWords = new IntObjectMap<>();
+
+    void add(int id, String... texts) {
+        remove(id);
+        Set<String> words = new LinkedHashSet<>();
+        for (String text : texts) {
+            words.addAll(tokenize(text));
+        }
+        if (words.isEmpty()) {
+            return;
+        }
+        for (String word : words) {
+            postings.computeIfAbsent(word, key -> new IntLinkedSet()).add(id);
+        }
+        indexedWords.put(id, words.toArray(new String[0]));
+    }
+
+    void remove(int id) {
+        String[] words = indexedWords.remove(id);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            IntLinkedSet ids = postings.get(word);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        indexedWords.clear();
+    }
+
+    /* Id, подходящие под запрос, без повторов и не больше limit */
+    List<Integer> search(String query, int limit) {
+        Set<Integer> result = new LinkedHashSet<>();
+        for (List<String> clause : parseQuery(query)) {
+            if (result.size() >= limit) {
+                break;
+            }
+            collect(clause, limit, result);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private void collect(List<String> clause, int limit, Set<Integer> result) {
+        IntLinkedSet[] lists = new IntLinkedSet[clause.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(clause.get(i));
+            if (lists[i] == null) {
+                return;
+            }
+        }
+        Arrays.sort(lists, (first, second) -> Integer.compare(first.size(), second.size()));
+        for (PrimitiveIterator.OfInt iterator = lists[0].iterator(); iterator.hasNext(); ) {
+            int id = iterator.nextInt();
+            if (containsInAll(lists, id)) {
+                result.add(id);
+                if (result.size() >= limit) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean containsInAll(IntLinkedSet[] lists, int id) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Запрос как список групп ИЛИ, каждая группа - слова, которые должны встретиться все */
+    static List<List<String>> parseQuery(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        List<String> clause = new ArrayList<>();
+        for (String word : tokenize(query)) {
+            if (OR.equals(word)) {
+                if (!clause.isEmpty()) {
+                    clauses.add(clause);
+                    clause = new ArrayList<>();
+                }
+            } else if (!clause.contains(word)) {
+                clause.add(word);
+            }
+        }
+        if (!clause.isEmpty()) {
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+
+    /* Проверка текста по запросу без индекса, теми же правилами разбиения на слова */
+    static boolean matches(List<List<String>> clauses, String... texts) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String text : texts) {
+            words.addAll(tokenize(text));
+        }
+        for (List<String> clause : clauses) {
+            if (words.containsAll(clause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                int lower = Character.toLowerCase(codePoint);
+                word.appendCodePoint(lower == 'ё' ? 'е' : lower);
+            } else if (!word.isEmpty()) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (!word.isEmpty()) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -3,46 +3,156 @@ package model;
 import model.enums.Status;
 import model.enums.TaskType;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
+import java.util.TreeMap;
 
 public class Epic extends Task {
-    private final List<Integer> subtasks;
+    private final IntLinkedSet subtasks;
+    /* Число подзадач в каждом статусе: статус эпика выводится из них за O(1).
+    Счётчики служебные и не сериализуются */
+    private transient int newSubtasks;
+    private transient int inProgressSubtasks;
+    private transient int doneSubtasks;
+    /* Мультимножества начал и окончаний подзадач и сумма длительностей: время эпика
+    пересчитывается за O(log k) при изменении одной подзадачи */
+    private transient TreeMap<LocalDateTime, Integer> subtaskStarts;
+    private transient TreeMap<LocalDateTime, Integer> subtaskEnds;
+    private transient Duration subtaskDuration;
+    private transient int subtasksWithDuration;
 
     public Epic() {
-        this.subtasks = new ArrayList<>();
+        this.subtasks = new IntLinkedSet();
     }
 
     public Epic(String name, String description) {
         super(name, description);
-        this.subtasks = new ArrayList<>();
+        this.subtasks = new IntLinkedSet();
     }
 
     public Epic(int id, String name, String description) {
         super(id, name, description);
-        this.subtasks = new ArrayList<>();
+        this.subtasks = new IntLinkedSet();
     }
 
     public Epic(int id, String name, String description, Status status) {
         super(id, name, description, status);
-        this.subtasks = new ArrayList<>();
+        this.subtasks = new IntLinkedSet();
     }
 
+    /* Копия сохранённого эпика вместе с подзадачами и агрегатами. ConcurrentTaskManager переименовывает
+    эпик, подменяя его копией, поэтому уже выданная читателю ссылка не меняется у него на ходу */
+    public Epic(Epic other) {
+        super(other.getId(), other.getName(), other.getDescription(), other.getStatus(),
+                other.getStartTime(), other.getDuration());
+        this.endTime = other.endTime;
+        this.subtasks = new IntLinkedSet();
+        other.subtasks.iterator().forEachRemaining((int subtaskId) -> subtasks.add(subtaskId));
+        this.newSubtasks = other.newSubtasks;
+        this.inProgressSubtasks = other.inProgressSubtasks;
+        this.doneSubtasks = other.doneSubtasks;
+        if (other.subtaskStarts != null) {
+            this.subtaskStarts = new TreeMap<>(other.subtaskStarts);
+            this.subtaskEnds = new TreeMap<>(other.subtaskEnds);
+        }
+        this.subtaskDuration = other.subtaskDuration;
+        this.subtasksWithDuration = other.subtasksWithDuration;
+    }
+
+    /* Представление только для чтения: без копирования, изменения идут через addSubtask/deleteSubtask */
     public List<Integer> getEpicSubtasks() {
-        return subtasks;
+        return subtasks.asList();
+    }
+
+    public boolean containsSubtask(int subtaskId) {
+        return subtasks.contains(subtaskId);
     }
 
-    public void addSubtask(Integer subtaskId) {
+    public void addSubtask(int subtaskId) {
         subtasks.add(subtaskId);
     }
 
-    public void deleteSubtask(Integer subtaskId) {
+    public void deleteSubtask(int subtaskId) {
         subtasks.remove(subtaskId);
     }
 
     public void removeSubtasks() {
         subtasks.clear();
+        newSubtasks = 0;
+        inProgressSubtasks = 0;
+        doneSubtasks = 0;
+        subtaskStarts = null;
+        subtaskEnds = null;
+        subtaskDuration = null;
+        subtasksWithDuration = 0;
+        setStartTime(null);
+        setDuration(null);
+        setEndTime(null);
+    }
+
+    public void addSubtaskStatus(Status status) {
+        countSubtaskStatus(status, 1);
+    }
+
+    public void removeSubtaskStatus(Status status) {
+        countSubtaskStatus(status, -1);
+    }
+
+    public int getSubtaskCount(Status status) {
+        return switch (status) {
+            case NEW -> newSubtasks;
+            case IN_PROGRESS -> inProgressSubtasks;
+            case DONE -> doneSubtasks;
+        };
+    }
+
+    public void addSubtaskTime(LocalDateTime start, LocalDateTime end, Duration duration) {
+        if (start != null) {
+            if (subtaskStarts == null) {
+                subtaskStarts = new TreeMap<>();
+                subtaskEnds = new TreeMap<>();
+            }
+            subtaskStarts.merge(start, 1, Integer::sum);
+            subtaskEnds.merge(end, 1, Integer::sum);
+        }
+        if (duration != null) {
+            subtaskDuration = subtaskDuration == null ? duration : subtaskDuration.plus(duration);
+            subtasksWithDuration++;
+        }
+        refreshTime();
+    }
+
+    public void removeSubtaskTime(LocalDateTime start, LocalDateTime end, Duration duration) {
+        if (start != null && subtaskStarts != null) {
+            subtaskStarts.computeIfPresent(start, (key, count) -> count > 1 ? count - 1 : null);
+            subtaskEnds.computeIfPresent(end, (key, count) -> count > 1 ? count - 1 : null);
+        }
+        if (duration != null && subtasksWithDuration > 0) {
+            subtaskDuration = --subtasksWithDuration == 0 ? null : subtaskDuration.minus(duration);
+        }
+        refreshTime();
+    }
+
+    @Override
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    private void refreshTime() {
+        boolean timed = subtaskStarts != null && !subtaskStarts.isEmpty();
+        setStartTime(timed ? subtaskStarts.firstKey() : null);
+        setEndTime(timed ? subtaskEnds.lastKey() : null);
+        setDuration(subtaskDuration);
+    }
+
+    private void countSubtaskStatus(Status status, int delta) {
+        switch (status) {
+            case NEW -> newSubtasks += delta;
+            case IN_PROGRESS -> inProgressSubtasks += delta;
+            case DONE -> doneSubtasks += delta;
+        }
     }
 
     @Override
@@ -0,0 +1,264 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+
+/* Множество int с сохранением порядка вставки. Элементы лежат в массиве по порядку добавления,
+а позиция каждого элемента - в хеш-индексе с открытой адресацией, поэтому add/remove/contains
+работают за O(1) без упаковки. Удалённый элемент оставляет в массиве надгробие, массив
+уплотняется только в add/remove, когда надгробий становится больше живых элементов. Чтение
+ничего не меняет и при надгробиях просто пропускает их, поэтому читателям под общей
+блокировкой не нужна запись. Integer.MIN_VALUE зарезервирован под надгробие */
+public class IntLinkedSet implements Iterable<Integer> {
+
+    private static final int TOMBSTONE = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] elements = new int[MIN_CAPACITY];
+    private int end;
+    private int size;
+    private int[] indexKeys = new int[MIN_CAPACITY * 2];
+    private int[] indexPositions = new int[MIN_CAPACITY * 2];
+    private int indexMask = MIN_CAPACITY * 2 - 1;
+    private final List<Integer> view = new ListView();
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        return indexPositions[slotOf(value)] != 0;
+    }
+
+    public boolean add(int value) {
+        if (value == TOMBSTONE) {
+            throw new IllegalArgumentException("Значение зарезервировано: " + value);
+        }
+        int slot = slotOf(value);
+        if (indexPositions[slot] != 0) {
+            return false;
+        }
+        if (end == elements.length) {
+            if (end - size > size) {
+                compact();
+            } else {
+                elements = Arrays.copyOf(elements, elements.length * 2);
+            }
+            slot = slotOf(value);
+        }
+        if ((size + 1) * 2 > indexKeys.length) {
+            rebuildIndex(indexKeys.length * 2);
+            slot = slotOf(value);
+        }
+        elements[end] = value;
+        indexKeys[slot] = value;
+        indexPositions[slot] = end + 1;
+        end++;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int slot = slotOf(value);
+        int position = indexPositions[slot] - 1;
+        if (position < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        elements[position] = TOMBSTONE;
+        size--;
+        if (size == 0) {
+            end = 0;
+        } else if (end - size > size && end - size > MIN_CAPACITY) {
+            compact();
+        }
+        return true;
+    }
+
+    public void clear() {
+        end = 0;
+        size = 0;
+        Arrays.fill(indexPositions, 0);
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + index + ", размер " + size);
+        }
+        if (end == size) {
+            return elements[index];
+        }
+        int position = skipTombstones(0);
+        for (int i = 0; i < index; i++) {
+            position = skipTombstones(position + 1);
+        }
+        return elements[position];
+    }
+
+    /* Список только для чтения поверх множества: без копирования и отражает последующие изменения */
+    public List<Integer> asList() {
+        return view;
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != TOMBSTONE) {
+                result[count++] = elements[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int next = skipTombstones(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                int value = elements[next];
+                next = skipTombstones(next + 1);
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(toArray(), ((IntLinkedSet) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return view.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return view.toString();
+    }
+
+    private int skipTombstones(int from) {
+        while (from < end && elements[from] == TOMBSTONE) {
+            from++;
+        }
+        return from;
+    }
+
+    private void compact() {
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != TOMBSTONE) {
+                elements[count++] = elements[i];
+            }
+        }
+        end = count;
+        rebuildIndex(indexKeys.length);
+    }
+
+    private void rebuildIndex(int capacity) {
+        indexKeys = new int[capacity];
+        indexPositions = new int[capacity];
+        indexMask = capacity - 1;
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != TOMBSTONE) {
+                int slot = slotOf(elements[i]);
+                indexKeys[slot] = elements[i];
+                indexPositions[slot] = i + 1;
+            }
+        }
+    }
+
+    private int slotOf(int value) {
+        int slot = (value ^ (value >>> 16)) & indexMask;
+        while (indexPositions[slot] != 0 && indexKeys[slot] != value) {
+            slot = (slot + 1) & indexMask;
+        }
+        return slot;
+    }
+
+    private void removeSlot(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & indexMask;
+            if (indexPositions[slot] == 0) {
+                indexPositions[free] = 0;
+                return;
+            }
+            int home = (indexKeys[slot] ^ (indexKeys[slot] >>> 16)) & indexMask;
+            boolean between = free <= slot ? free < home && home <= slot : free < home || home <= slot;
+            if (!between) {
+                indexKeys[free] = indexKeys[slot];
+                indexPositions[free] = indexPositions[slot];
+                free = slot;
+            }
+        }
+    }
+
+    private class ListView extends AbstractList<Integer> implements RandomAccess {
+
+        @Override
+        public Integer get(int index) {
+            return IntLinkedSet.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            return value instanceof Integer intValue && IntLinkedSet.this.contains(intValue);
+        }
+
+        @Override
+        public int indexOf(Object value) {
+            if (!contains(value)) {
+                return -1;
+            }
+            int position = indexPositions[slotOf((Integer) value)] - 1;
+            if (end == size) {
+                return position;
+            }
+            int index = 0;
+            for (int i = 0; i < position; i++) {
+                if (elements[i] != TOMBSTONE) {
+                    index++;
+                }
+            }
+            return index;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return IntLinkedSet.this.iterator();
+        }
+
+        @Override
+        public int lastIndexOf(Object value) {
+            return indexOf(value);
+        }
+    }
+}
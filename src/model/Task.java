@@ -14,7 +14,7 @@ public class Task {
     private Status status;
     private Duration duration;
     private LocalDateTime startTime;
-    private LocalDateTime endTime;
+    protected LocalDateTime endTime;
 
     public Task() {
 
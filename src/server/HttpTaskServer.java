@@ -1,9 +1,11 @@
 package server;
 
 import com.sun.net.httpserver.HttpServer;
+import handlers.BatchHandler;
 import handlers.EpicHandler;
 import handlers.HistoryHandler;
 import handlers.PrioritizedHandler;
+import handlers.SearchHandler;
 import handlers.SubtaskHandler;
 import handlers.TaskHandler;
 import managers.HistoryManager;
@@ -12,6 +14,8 @@ import managers.TaskManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
 public class HttpTaskServer {
@@ -19,9 +23,17 @@ public class HttpTaskServer {
     Logger logger = Logger.getLogger(getClass().getName());
 
     private final HttpServer httpServer;
+    private final ExecutorService executor;
     private static final int PORT = 8080;
 
     public HttpTaskServer(TaskManager manager) throws IOException {
+        this(manager, 0);
+    }
+
+    /* При threads > 0 запросы обрабатываются пулом потоков, и менеджер должен быть
+    потокобезопасным (ConcurrentTaskManager). При 0 - в потоке сервера, как раньше */
+    public HttpTaskServer(TaskManager manager, int threads) throws IOException {
+        executor = threads > 0 ? Executors.newFixedThreadPool(threads) : null;
         HistoryManager historyManager = manager.getHistoryManager();
         httpServer = HttpServer.create(new InetSocketAddress(PORT), 0);
 
@@ -30,10 +42,12 @@ public class HttpTaskServer {
         httpServer.createContext("/epics", new EpicHandler(manager));
         httpServer.createContext("/history", new HistoryHandler(historyManager));
         httpServer.createContext("/prioritized", new PrioritizedHandler(manager));
+        httpServer.createContext("/batch", new BatchHandler(manager));
+        httpServer.createContext("/search", new SearchHandler(manager));
     }
 
     public void start() {
-        httpServer.setExecutor(null);
+        httpServer.setExecutor(executor);
         httpServer.start();
         logger.info("Server started on port " + PORT);
     }
@@ -41,6 +55,9 @@ public class HttpTaskServer {
     public void stop() {
         if (httpServer != null) {
             httpServer.stop(0);
+            if (executor != null) {
+                executor.shutdown();
+            }
             logger.info("Server stopped.");
         }
     }
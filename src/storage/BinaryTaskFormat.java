@@ -0,0 +1,204 @@
+package storage;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.enums.Status;
+import model.enums.TaskType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/* Бинарный формат снимка: заголовок KNBN + версия, затем записи вида
+[тип][id varint][статус][флаги][имя][описание][epicId][начало][длительность][окончание],
+где время хранится в секундах от эпохи (UTC) в zigzag varint, а строки - длиной и байтами UTF-8.
+Необязательные поля пишутся, только если выставлен соответствующий флаг */
+public final class BinaryTaskFormat {
+
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'K', 'N', 'B', 'N'};
+    private static final int END_TAG = 0;
+    private static final int NO_STATUS = 0xFF;
+
+    private static final int HAS_NAME = 1;
+    private static final int HAS_DESCRIPTION = 1 << 1;
+    private static final int HAS_START_TIME = 1 << 2;
+    private static final int HAS_DURATION = 1 << 3;
+    private static final int HAS_END_TIME = 1 << 4;
+
+    private BinaryTaskFormat() {
+        throw new IllegalStateException("Утилитарный класс");
+    }
+
+    public static boolean hasMagic(byte[] prefix, int length) {
+        return length >= MAGIC.length && Arrays.equals(prefix, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    public static void writeHeader(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    public static void readHeader(InputStream in) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!hasMagic(magic, magic.length)) {
+            throw new IOException("Файл не является бинарным снимком задач");
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия бинарного снимка: " + version);
+        }
+    }
+
+    public static void writeTask(OutputStream out, Task task) throws IOException {
+        out.write(task.getType().ordinal() + 1);
+        writeVarLong(out, task.getId());
+        out.write(task.getStatus() == null ? NO_STATUS : task.getStatus().ordinal());
+
+        LocalDateTime endTime = task.getType() == TaskType.EPIC ? task.getEndTime() : null;
+        int flags = (task.getName() != null ? HAS_NAME : 0)
+                | (task.getDescription() != null ? HAS_DESCRIPTION : 0)
+                | (task.getStartTime() != null ? HAS_START_TIME : 0)
+                | (task.getDuration() != null ? HAS_DURATION : 0)
+                | (endTime != null ? HAS_END_TIME : 0);
+        out.write(flags);
+
+        if (task.getName() != null) {
+            writeString(out, task.getName());
+        }
+        if (task.getDescription() != null) {
+            writeString(out, task.getDescription());
+        }
+        if (task.getType() == TaskType.SUBTASK) {
+            writeVarLong(out, ((Subtask) task).getEpicId());
+        }
+        if (task.getStartTime() != null) {
+            writeDateTime(out, task.getStartTime());
+        }
+        if (task.getDuration() != null) {
+            writeVarLong(out, zigzag(task.getDuration().getSeconds()));
+            writeVarLong(out, task.getDuration().getNano());
+        }
+        if (endTime != null) {
+            writeDateTime(out, endTime);
+        }
+    }
+
+    public static void writeEnd(OutputStream out) throws IOException {
+        out.write(END_TAG);
+    }
+
+    /* Возвращает null, когда достигнут маркер конца снимка */
+    public static Task readTask(InputStream in) throws IOException {
+        int tag = readByte(in);
+        if (tag == END_TAG) {
+            return null;
+        }
+        if (tag > TaskType.values().length) {
+            throw new IOException("Неизвестный тип записи: " + tag);
+        }
+        TaskType type = TaskType.values()[tag - 1];
+        int id = (int) readVarLong(in);
+        int statusCode = readByte(in);
+        if (statusCode != NO_STATUS && statusCode >= Status.values().length) {
+            throw new IOException("Неизвестный статус задачи: " + statusCode);
+        }
+        Status status = statusCode == NO_STATUS ? null : Status.values()[statusCode];
+        int flags = readByte(in);
+        String name = (flags & HAS_NAME) != 0 ? readString(in) : null;
+        String description = (flags & HAS_DESCRIPTION) != 0 ? readString(in) : null;
+
+        Task task;
+        switch (type) {
+            case EPIC:
+                task = new Epic(id, name, description);
+                break;
+            case SUBTASK:
+                task = new Subtask(id, name, description, (int) readVarLong(in));
+                break;
+            default:
+                task = new Task(id, name, description);
+        }
+        task.setStatus(status);
+        if ((flags & HAS_START_TIME) != 0) {
+            task.setStartTime(readDateTime(in));
+        }
+        if ((flags & HAS_DURATION) != 0) {
+            long seconds = unzigzag(readVarLong(in));
+            task.setDuration(Duration.ofSeconds(seconds, readVarLong(in)));
+        }
+        if ((flags & HAS_END_TIME) != 0) {
+            task.setEndTime(readDateTime(in));
+        }
+        return task;
+    }
+
+    private static void writeDateTime(OutputStream out, LocalDateTime dateTime) throws IOException {
+        writeVarLong(out, zigzag(dateTime.toEpochSecond(ZoneOffset.UTC)));
+        writeVarLong(out, dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(InputStream in) throws IOException {
+        long epochSecond = unzigzag(readVarLong(in));
+        return LocalDateTime.ofEpochSecond(epochSecond, (int) readVarLong(in), ZoneOffset.UTC);
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Снимок обрывается посреди строки");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Некорректное число в бинарном снимке");
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Неожиданный конец бинарного снимка");
+        }
+        return b;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
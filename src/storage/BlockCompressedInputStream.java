@@ -0,0 +1,138 @@
+package storage;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/* Читает поток BlockCompressedOutputStream, распаковывая до readAhead следующих блоков
+параллельно в пуле. Память ограничена readAhead блоками, а не размером всего файла */
+public class BlockCompressedInputStream extends InputStream {
+
+    public static final int DEFAULT_READ_AHEAD = Runtime.getRuntime().availableProcessors();
+
+    private final DataInputStream data;
+    private final ExecutorService pool;
+    private final int readAhead;
+    private final int blockSize;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block = new byte[0];
+    private int position;
+    private boolean endReached;
+
+    public BlockCompressedInputStream(InputStream in) throws IOException {
+        this(in, ForkJoinPool.commonPool(), DEFAULT_READ_AHEAD);
+    }
+
+    public BlockCompressedInputStream(InputStream in, ExecutorService pool, int readAhead) throws IOException {
+        this.data = new DataInputStream(in);
+        this.pool = pool;
+        this.readAhead = Math.max(1, readAhead);
+        this.blockSize = BlockCompression.readHeader(data);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(length, block.length - position);
+        System.arraycopy(block, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        data.close();
+    }
+
+    private boolean fill() throws IOException {
+        while (position == block.length) {
+            submitAhead();
+            Future<byte[]> next = pending.pollFirst();
+            if (next == null) {
+                return false;
+            }
+            block = await(next);
+            position = 0;
+        }
+        return true;
+    }
+
+    private void submitAhead() throws IOException {
+        while (!endReached && pending.size() < readAhead) {
+            int rawLength = data.readInt();
+            if (rawLength == 0) {
+                endReached = true;
+                return;
+            }
+            int compressedLength = data.readInt();
+            if (rawLength < 0 || rawLength > blockSize || compressedLength < 0) {
+                throw new IOException("Повреждён блок сжатого снимка");
+            }
+            byte[] compressed = new byte[compressedLength];
+            data.readFully(compressed);
+            pending.addLast(pool.submit(() -> inflate(compressed, rawLength)));
+        }
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Чтение сжатого снимка прервано", exp);
+        } catch (ExecutionException exp) {
+            if (exp.getCause() instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            throw new IOException("Не удалось распаковать блок снимка", exp.getCause());
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength) {
+                int count = inflater.inflate(raw, length, rawLength - length);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new EOFException("Блок сжатого снимка обрывается");
+                }
+                length += count;
+            }
+            return raw;
+        } catch (DataFormatException | EOFException exp) {
+            throw new UncheckedIOException(new IOException("Повреждён блок сжатого снимка", exp));
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package storage;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/* Поток сжатия блоками: заголовок KNBZ + версия + размер блока, затем блоки вида
+[длина исходных данных][длина сжатых данных][данные Deflate] и завершающий блок нулевой длины.
+Блоки сжимаются независимо, поэтому читатель может распаковывать их параллельно, а в памяти
+одновременно находится не больше одного исходного блока */
+public class BlockCompressedOutputStream extends FilterOutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final DataOutputStream data;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final byte[] block;
+    private byte[] compressed;
+    private int position;
+    private boolean finished;
+
+    public BlockCompressedOutputStream(OutputStream out, int blockSize) throws IOException {
+        super(out);
+        this.data = new DataOutputStream(out);
+        this.block = new byte[blockSize];
+        this.compressed = new byte[blockSize + blockSize / 8 + 64];
+        BlockCompression.writeHeader(data, blockSize);
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        if (position == block.length) {
+            writeBlock();
+        }
+        block[position++] = (byte) value;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == block.length) {
+                writeBlock();
+            }
+            int count = Math.min(length, block.length - position);
+            System.arraycopy(bytes, offset, block, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /* Дописывает последний блок и маркер конца, не закрывая нижележащий поток */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        writeBlock();
+        data.writeInt(0);
+        data.flush();
+        deflater.end();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        super.close();
+    }
+
+    private void writeBlock() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(block, 0, position);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                byte[] larger = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, larger, 0, length);
+                compressed = larger;
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        data.writeInt(position);
+        data.writeInt(length);
+        data.write(compressed, 0, length);
+        position = 0;
+    }
+}
@@ -0,0 +1,43 @@
+package storage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public final class BlockCompression {
+
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'K', 'N', 'B', 'Z'};
+
+    private BlockCompression() {
+        throw new IllegalStateException("Утилитарный класс");
+    }
+
+    public static boolean hasMagic(byte[] prefix, int length) {
+        return length >= MAGIC.length && Arrays.equals(prefix, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    static void writeHeader(DataOutputStream out, int blockSize) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(blockSize);
+    }
+
+    static int readHeader(DataInputStream in) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!hasMagic(magic, magic.length)) {
+            throw new IOException("Файл не является сжатым снимком задач");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия сжатого снимка: " + version);
+        }
+        int blockSize = in.readInt();
+        if (blockSize <= 0) {
+            throw new IOException("Некорректный размер блока сжатого снимка: " + blockSize);
+        }
+        return blockSize;
+    }
+}
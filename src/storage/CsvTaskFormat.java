@@ -0,0 +1,375 @@
+package storage;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.enums.Status;
+import model.enums.TaskType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/* CSV-строка задачи: id,type,name,status,description,epic,startTime,duration,endTime.
+Имя и описание берутся в кавычки, если содержат запятую, кавычку, обратный слеш или перевод строки:
+кавычка внутри удваивается, а переводы строк и слеш экранируются как \n, \r и \\, чтобы запись
+всегда занимала одну строку файла и журнала.
+Разбор идёт за один проход прямо по байтам UTF-8: числа, перечисления, время и длительность
+декодируются без промежуточных строк, строки создаются только для имени и описания */
+public final class CsvTaskFormat {
+
+    public static final String HEADER = "id,type,name,status,description,epic,startTime,duration,endTime";
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private CsvTaskFormat() {
+        throw new IllegalStateException("Утилитарный класс");
+    }
+
+    public static String format(Task task) {
+        StringBuilder row = new StringBuilder(128);
+        row.append(task.getId()).append(',').append(task.getType()).append(',');
+        appendText(row, task.getName());
+        row.append(',').append(task.getStatus()).append(',');
+        appendText(row, task.getDescription());
+        row.append(',');
+        if (task.getType() == TaskType.SUBTASK) {
+            row.append(((Subtask) task).getEpicId());
+        } else {
+            row.append(' ');
+        }
+        row.append(',').append(task.getStartTime())
+                .append(',').append(task.getDuration())
+                .append(',').append(task.getEndTime());
+        return row.toString();
+    }
+
+    public static Task parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return parse(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    public static boolean isHeader(ByteBuffer buffer, int from, int to) {
+        if (to - from != HEADER.length()) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length(); i++) {
+            if (buffer.get(from + i) != HEADER.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Разбирает одну запись в диапазоне [from, to) без завершающего перевода строки */
+    public static Task parse(ByteBuffer buffer, int from, int to) {
+        int end = fieldEnd(buffer, from, to);
+        int id = (int) parseLong(buffer, from, end);
+
+        int start = end + 1;
+        end = fieldEnd(buffer, start, to);
+        TaskType type = parseType(buffer, start, end);
+
+        start = end + 1;
+        end = fieldEnd(buffer, start, to);
+        String name = parseText(buffer, start, end);
+
+        start = end + 1;
+        end = fieldEnd(buffer, start, to);
+        Status status = parseStatus(buffer, start, end);
+
+        start = end + 1;
+        end = fieldEnd(buffer, start, to);
+        String description = parseText(buffer, start, end);
+
+        start = end + 1;
+        end = fieldEnd(buffer, start, to);
+        int epicId = type == TaskType.SUBTASK ? (int) parseLong(buffer, start, end) : 0;
+
+        start = end + 1;
+        end = fieldEnd(buffer, start, to);
+        LocalDateTime startTime = parseDateTime(buffer, start, end);
+
+        start = end + 1;
+        end = fieldEnd(buffer, start, to);
+        Duration duration = parseDuration(buffer, start, end);
+
+        start = end + 1;
+        end = fieldEnd(buffer, start, to);
+        LocalDateTime endTime = parseDateTime(buffer, start, end);
+
+        Task task;
+        switch (type) {
+            case EPIC:
+                task = new Epic(id, name, description);
+                task.setEndTime(endTime);
+                break;
+            case SUBTASK:
+                task = new Subtask(id, name, description, epicId);
+                break;
+            default:
+                task = new Task(id, name, description);
+        }
+        task.setStatus(status);
+        task.setStartTime(startTime);
+        task.setDuration(duration);
+        return task;
+    }
+
+    private static void appendText(StringBuilder row, String value) {
+        if (value == null) {
+            row.append("null");
+            return;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char symbol = value.charAt(i);
+            quoted = symbol == ',' || symbol == '"' || symbol == '\\' || symbol == '\n' || symbol == '\r';
+        }
+        if (!quoted) {
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char symbol = value.charAt(i);
+            switch (symbol) {
+                case '"':
+                    row.append("\"\"");
+                    break;
+                case '\\':
+                    row.append("\\\\");
+                    break;
+                case '\n':
+                    row.append("\\n");
+                    break;
+                case '\r':
+                    row.append("\\r");
+                    break;
+                default:
+                    row.append(symbol);
+            }
+        }
+        row.append('"');
+    }
+
+    private static int fieldEnd(ByteBuffer buffer, int from, int to) {
+        if (from > to) {
+            throw new IllegalArgumentException("В записи не хватает полей");
+        }
+        int position = from;
+        if (position < to && buffer.get(position) == '"') {
+            position++;
+            while (position < to) {
+                if (buffer.get(position) == '"') {
+                    if (position + 1 < to && buffer.get(position + 1) == '"') {
+                        position += 2;
+                        continue;
+                    }
+                    return position + 1;
+                }
+                position++;
+            }
+            throw new IllegalArgumentException("Незакрытая кавычка в записи");
+        }
+        while (position < to && buffer.get(position) != ',') {
+            position++;
+        }
+        return position;
+    }
+
+    private static long parseLong(ByteBuffer buffer, int from, int to) {
+        boolean negative = from < to && buffer.get(from) == '-';
+        int position = negative ? from + 1 : from;
+        if (position >= to) {
+            throw new NumberFormatException("Пустое числовое поле");
+        }
+        long value = 0;
+        for (; position < to; position++) {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Некорректное число: " + text(buffer, from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private static TaskType parseType(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        byte first = length > 0 ? buffer.get(from) : 0;
+        if (length == 4 && first == 'T') {
+            return TaskType.TASK;
+        }
+        if (length == 4 && first == 'E') {
+            return TaskType.EPIC;
+        }
+        if (length == 7 && first == 'S') {
+            return TaskType.SUBTASK;
+        }
+        return TaskType.valueOf(text(buffer, from, to));
+    }
+
+    private static Status parseStatus(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        byte first = length > 0 ? buffer.get(from) : 0;
+        if (length == 3 && first == 'N') {
+            return Status.NEW;
+        }
+        if (length == 11 && first == 'I') {
+            return Status.IN_PROGRESS;
+        }
+        if (length == 4 && first == 'D') {
+            return Status.DONE;
+        }
+        if (isNull(buffer, from, to)) {
+            return null;
+        }
+        return Status.valueOf(text(buffer, from, to));
+    }
+
+    private static String parseText(ByteBuffer buffer, int from, int to) {
+        if (to - from < 2 || buffer.get(from) != '"') {
+            return text(buffer, from, to);
+        }
+        String quoted = text(buffer, from + 1, to - 1);
+        if (quoted.indexOf('"') < 0 && quoted.indexOf('\\') < 0) {
+            return quoted;
+        }
+        StringBuilder value = new StringBuilder(quoted.length());
+        for (int i = 0; i < quoted.length(); i++) {
+            char symbol = quoted.charAt(i);
+            if (symbol == '"' && i + 1 < quoted.length() && quoted.charAt(i + 1) == '"') {
+                value.append('"');
+                i++;
+            } else if (symbol == '\\' && i + 1 < quoted.length()) {
+                char escaped = quoted.charAt(++i);
+                value.append(escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            } else {
+                value.append(symbol);
+            }
+        }
+        return value.toString();
+    }
+
+    /* Быстрый путь для вывода LocalDateTime.toString(): yyyy-MM-ddTHH:mm[:ss[.n...]] */
+    private static LocalDateTime parseDateTime(ByteBuffer buffer, int from, int to) {
+        if (isNull(buffer, from, to)) {
+            return null;
+        }
+        int length = to - from;
+        if (length < 16 || buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-'
+                || buffer.get(from + 10) != 'T' || buffer.get(from + 13) != ':') {
+            return LocalDateTime.parse(text(buffer, from, to));
+        }
+        int year = digits(buffer, from, 4);
+        int month = digits(buffer, from + 5, 2);
+        int day = digits(buffer, from + 8, 2);
+        int hour = digits(buffer, from + 11, 2);
+        int minute = digits(buffer, from + 14, 2);
+        int second = 0;
+        int nano = 0;
+        if (length > 16) {
+            if (length < 19 || buffer.get(from + 16) != ':') {
+                return LocalDateTime.parse(text(buffer, from, to));
+            }
+            second = digits(buffer, from + 17, 2);
+            if (length > 19) {
+                if (buffer.get(from + 19) != '.' || length > 29) {
+                    return LocalDateTime.parse(text(buffer, from, to));
+                }
+                int fractionDigits = length - 20;
+                nano = digits(buffer, from + 20, fractionDigits);
+                for (int i = fractionDigits; i < 9; i++) {
+                    nano *= 10;
+                }
+            }
+        }
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0 || nano < 0) {
+            return LocalDateTime.parse(text(buffer, from, to));
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    /* Быстрый путь для вывода Duration.toString(): PT[nH][nM][n[.n]S] с возможными минусами */
+    private static Duration parseDuration(ByteBuffer buffer, int from, int to) {
+        if (isNull(buffer, from, to)) {
+            return null;
+        }
+        if (to - from < 4 || buffer.get(from) != 'P' || buffer.get(from + 1) != 'T') {
+            return Duration.parse(text(buffer, from, to));
+        }
+        long seconds = 0;
+        long nanos = 0;
+        int position = from + 2;
+        while (position < to) {
+            boolean negative = buffer.get(position) == '-';
+            if (negative) {
+                position++;
+            }
+            long value = 0;
+            int digitsStart = position;
+            while (position < to && buffer.get(position) >= '0' && buffer.get(position) <= '9') {
+                value = value * 10 + (buffer.get(position++) - '0');
+            }
+            if (position == digitsStart || position >= to) {
+                return Duration.parse(text(buffer, from, to));
+            }
+            long fraction = 0;
+            if (buffer.get(position) == '.') {
+                int fractionDigits = 0;
+                position++;
+                while (position < to && buffer.get(position) >= '0' && buffer.get(position) <= '9') {
+                    fraction = fraction * 10 + (buffer.get(position++) - '0');
+                    fractionDigits++;
+                }
+                if (fractionDigits == 0 || fractionDigits > 9 || position >= to || buffer.get(position) != 'S') {
+                    return Duration.parse(text(buffer, from, to));
+                }
+                for (int i = fractionDigits; i < 9; i++) {
+                    fraction *= 10;
+                }
+            }
+            byte unit = buffer.get(position++);
+            long multiplier = unit == 'H' ? 3600 : unit == 'M' ? 60 : unit == 'S' ? 1 : 0;
+            if (multiplier == 0) {
+                return Duration.parse(text(buffer, from, to));
+            }
+            seconds += (negative ? -value : value) * multiplier;
+            nanos += negative ? -fraction : fraction;
+        }
+        return Duration.ofSeconds(seconds, nanos);
+    }
+
+    private static int digits(ByteBuffer buffer, int from, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = buffer.get(from + i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isNull(ByteBuffer buffer, int from, int to) {
+        return to - from == 4 && buffer.get(from) == 'n' && buffer.get(from + 1) == 'u'
+                && buffer.get(from + 2) == 'l' && buffer.get(from + 3) == 'l';
+    }
+
+    private static String text(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + from, length, StandardCharsets.UTF_8);
+        }
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+            SCRATCH.set(scratch);
+        }
+        buffer.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+package storage;
+
+import exceptions.FileLoadException;
+import exceptions.ManagerSaveException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/* Журнал просмотров для истории: вызывающий поток только ставит запись в очередь,
+а запись на диск выполняет отдельный фоновый поток */
+public class HistoryLog implements Closeable {
+
+    Logger historyLogger = Logger.getLogger(getClass().getName());
+
+    private final File file;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "history-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Writer output;
+
+    public HistoryLog(File file) {
+        this.file = file;
+    }
+
+    public void recordView(int id) {
+        writer.execute(() -> {
+            try {
+                if (output == null) {
+                    output = open(file, true);
+                }
+                output.write(id + "\n");
+                output.flush();
+            } catch (IOException exp) {
+                historyLogger.warning("Не удалось записать просмотр в историю: " + exp.getMessage());
+            }
+        });
+    }
+
+    /* Заменяет накопленный журнал просмотров текущим порядком истории */
+    public void rewrite(List<Integer> ids) {
+        writer.execute(() -> {
+            File tempFile = new File(file.getPath() + ".tmp");
+            try (Writer tempOutput = open(tempFile, false)) {
+                for (Integer id : ids) {
+                    tempOutput.write(id + "\n");
+                }
+            } catch (IOException exp) {
+                historyLogger.warning("Не удалось сохранить историю: " + exp.getMessage());
+                return;
+            }
+            try {
+                closeOutput();
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException exp) {
+                historyLogger.warning("Не удалось заменить файл истории: " + exp.getMessage());
+            }
+        });
+    }
+
+    public List<Integer> load() throws FileLoadException {
+        List<Integer> ids = new ArrayList<>();
+        if (!file.exists()) {
+            return ids;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    ids.add(Integer.parseInt(line));
+                }
+            }
+        } catch (IOException | NumberFormatException exp) {
+            throw new FileLoadException("Произошла ошибка чтения истории", exp);
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                historyLogger.warning("Запись истории не завершилась за отведённое время");
+            }
+            closeOutput();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        } catch (IOException exp) {
+            throw new ManagerSaveException("Произошла ошибка закрытия файла истории", exp);
+        }
+    }
+
+    private void closeOutput() throws IOException {
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+    }
+
+    private static Writer open(File target, boolean append) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(target, append), StandardCharsets.UTF_8));
+    }
+}
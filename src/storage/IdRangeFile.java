@@ -0,0 +1,95 @@
+package storage;
+
+import exceptions.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntUnaryOperator;
+
+/* Отметка диапазонов id рядом с файлом данных: первый id, ещё не отданный ни в один диапазон.
+Отметка читается и сдвигается под блокировкой файла, поэтому несколько серверов с общим каталогом
+данных получают непересекающиеся диапазоны. Новая отметка сбрасывается на диск до выдачи диапазона,
+и после сбоя id из уже выданных диапазонов не повторяются. Отметка всегда занимает одни и те же
+MARK_BYTES байт в начале файла и переписывается на месте без усечения: запись меньше сектора
+не рвётся, поэтому после сбоя в файле остаётся либо старая, либо новая отметка, но не пустота */
+public class IdRangeFile implements IdRangeSource {
+
+    static final int FIRST_ID = 1;
+    private static final int MARK_BYTES = 11;
+
+    /* Блокировку файла держит весь процесс, поэтому потоки одного процесса сериализуются на мониторе пути */
+    private static final ConcurrentMap<String, Object> monitors = new ConcurrentHashMap<>();
+
+    private final File file;
+
+    public IdRangeFile(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public int lease(int count) {
+        return update(mark -> Math.addExact(mark, count));
+    }
+
+    @Override
+    public void raise(int next) {
+        update(mark -> Math.max(mark, next));
+    }
+
+    /* Текущая отметка без изменения; для отсутствующего файла - первый id */
+    public int getMark() {
+        return update(IntUnaryOperator.identity());
+    }
+
+    private int update(IntUnaryOperator change) {
+        Object monitor = monitors.computeIfAbsent(file.getAbsolutePath(), path -> new Object());
+        synchronized (monitor) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    int mark = read(channel);
+                    int updated = change.applyAsInt(mark);
+                    if (updated != mark) {
+                        write(channel, updated);
+                    }
+                    return mark;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException exp) {
+                throw new ManagerSaveException("Не удалось выделить диапазон id: " + file.getName(), exp);
+            } catch (NumberFormatException exp) {
+                throw new ManagerSaveException("Повреждена отметка диапазонов id: " + file.getName());
+            }
+        }
+    }
+
+    private static int read(FileChannel channel) throws IOException {
+        if (channel.size() == 0) {
+            return FIRST_ID;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), MARK_BYTES));
+        channel.read(buffer, 0);
+        return Integer.parseInt(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).strip());
+    }
+
+    /* Десять цифр с ведущими нулями и перевод строки; более короткая отметка старого формата
+    перекрывается целиком */
+    private static void write(FileChannel channel, int mark) throws IOException {
+        String text = String.format(Locale.ROOT, "%010d\n", mark);
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+        channel.force(true);
+    }
+}
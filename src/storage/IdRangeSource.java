@@ -0,0 +1,11 @@
+package storage;
+
+/* Источник непересекающихся диапазонов id для IdAllocator */
+public interface IdRangeSource {
+
+    /* Начало диапазона из count id, который больше никому не будет выдан */
+    int lease(int count);
+
+    /* Следующие диапазоны начнутся не раньше next */
+    void raise(int next);
+}
@@ -0,0 +1,8 @@
+package storage;
+
+public enum JournalOperation {
+    CREATE,
+    UPDATE,
+    DELETE,
+    CLEAR
+}
@@ -0,0 +1,20 @@
+package storage;
+
+public class JournalRecord {
+
+    private final JournalOperation operation;
+    private final String payload;
+
+    public JournalRecord(JournalOperation operation, String payload) {
+        this.operation = operation;
+        this.payload = payload;
+    }
+
+    public JournalOperation getOperation() {
+        return operation;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+}
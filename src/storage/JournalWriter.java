@@ -0,0 +1,161 @@
+package storage;
+
+import exceptions.ManagerSaveException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/* Единственный поток записи в журнал. Потоки запросов кладут изменения в ограниченную очередь
+(при переполнении put блокируется - это и есть обратное давление), поток записи забирает
+всё накопившееся одной пачкой. При закрытии очередь дописывается до конца: постановка в очередь
+идёт под блокировкой на чтение, а закрытие под блокировкой на запись, поэтому после маркера
+остановки в очередь ничего не попадает и ожидающий запись поток не повиснет */
+public class JournalWriter implements Closeable {
+
+    static final int MAX_BATCH_RECORDS = 1024;
+
+    Logger writerLogger = Logger.getLogger(getClass().getName());
+
+    private static final PendingRecord SHUTDOWN = new PendingRecord(null, false);
+
+    private final TaskJournal journal;
+    private final BlockingQueue<PendingRecord> queue;
+    private final boolean awaitDurable;
+    private final Runnable afterWrite;
+    private final Thread thread;
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile RuntimeException failure;
+    private volatile boolean closed;
+
+    public JournalWriter(TaskJournal journal, int capacity, boolean awaitDurable, Runnable afterWrite) {
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.awaitDurable = awaitDurable;
+        this.afterWrite = afterWrite;
+        this.thread = new Thread(this::writeLoop, "journal-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void submit(JournalRecord record) {
+        submitAll(List.of(record));
+    }
+
+    /* Записи пакета ставятся в очередь подряд и попадают в журнал одной-двумя пачками,
+    в режиме DURABLE ожидание идёт сразу по всему пакету, а не по каждой записи */
+    public void submitAll(List<JournalRecord> records) {
+        List<PendingRecord> pendings = new ArrayList<>(records.size());
+        try {
+            closeLock.readLock().lock();
+            try {
+                if (closed) {
+                    throw new ManagerSaveException("Поток записи журнала остановлен");
+                }
+                if (failure != null) {
+                    throw new ManagerSaveException("Поток записи журнала завершился с ошибкой: "
+                            + failure.getMessage());
+                }
+                for (JournalRecord record : records) {
+                    PendingRecord pending = new PendingRecord(record, awaitDurable);
+                    queue.put(pending);
+                    pendings.add(pending);
+                }
+            } finally {
+                closeLock.readLock().unlock();
+            }
+            if (awaitDurable) {
+                for (PendingRecord pending : pendings) {
+                    pending.written.await();
+                }
+            }
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание записи в журнал прервано");
+        }
+        for (PendingRecord pending : pendings) {
+            if (pending.failure != null) {
+                throw new ManagerSaveException("Произошла ошибка записи в журнал: " + pending.failure.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.put(SHUTDOWN);
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        List<JournalRecord> records = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException exp) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH_RECORDS - 1);
+            for (PendingRecord pending : batch) {
+                if (pending == SHUTDOWN) {
+                    running = false;
+                } else {
+                    records.add(pending.record);
+                }
+            }
+            RuntimeException batchFailure = null;
+            if (!records.isEmpty()) {
+                try {
+                    journal.appendAll(records);
+                    afterWrite.run();
+                } catch (RuntimeException exp) {
+                    batchFailure = exp;
+                    failure = exp;
+                    writerLogger.warning("Не удалось записать изменения в журнал: " + exp.getMessage());
+                }
+            }
+            for (PendingRecord pending : batch) {
+                pending.failure = batchFailure;
+                if (pending.written != null) {
+                    pending.written.countDown();
+                }
+            }
+            batch.clear();
+            records.clear();
+        }
+    }
+
+    private static class PendingRecord {
+
+        private final JournalRecord record;
+        private final CountDownLatch written;
+        private volatile RuntimeException failure;
+
+        PendingRecord(JournalRecord record, boolean awaitDurable) {
+            this.record = record;
+            this.written = awaitDurable ? new CountDownLatch(1) : null;
+        }
+    }
+}
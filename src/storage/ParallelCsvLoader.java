@@ -0,0 +1,138 @@
+package storage;
+
+import model.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/* Загрузка CSV-снимка: файл отображается в память, делится на куски по границам строк,
+и куски разбираются параллельно в ForkJoinPool прямо из отображённых байтов.
+Порядок строк в результате сохраняется. Непустой файл обязан начинаться с заголовка.
+Параллелен только разбор: разобранные задачи менеджер восстанавливает в индексы в одном потоке */
+public class ParallelCsvLoader {
+
+    static final long MIN_CHUNK_BYTES = 1L << 20;
+    static final long MAX_CHUNK_BYTES = 16L << 20;
+
+    private final ForkJoinPool pool;
+
+    public ParallelCsvLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelCsvLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public List<Task> load(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel);
+            if (chunks.isEmpty()) {
+                return new ArrayList<>();
+            }
+            try {
+                return pool.invoke(new ChunkTask(channel, chunks, 0, chunks.size()));
+            } catch (UncheckedIOException exp) {
+                throw exp.getCause();
+            }
+        }
+    }
+
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.clamp(size / (pool.getParallelism() * 4L), MIN_CHUNK_BYTES, MAX_CHUNK_BYTES);
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private List<Task> parseChunk(FileChannel channel, long[] chunk) {
+        MappedByteBuffer mapped;
+        try {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+        } catch (IOException exp) {
+            throw new UncheckedIOException(exp);
+        }
+        List<Task> parsed = new ArrayList<>();
+        int lineStart = 0;
+        int length = mapped.limit();
+        for (int i = 0; i <= length; i++) {
+            if (i < length && mapped.get(i) != '\n') {
+                continue;
+            }
+            int lineEnd = i > lineStart && mapped.get(i - 1) == '\r' ? i - 1 : i;
+            if (chunk[0] == 0 && lineStart == 0) {
+                if (!CsvTaskFormat.isHeader(mapped, lineStart, lineEnd)) {
+                    throw new UncheckedIOException(new IOException("Файл не начинается с заголовка CSV"));
+                }
+            } else if (lineEnd > lineStart) {
+                parsed.add(CsvTaskFormat.parse(mapped, lineStart, lineEnd));
+            }
+            lineStart = i + 1;
+        }
+        return parsed;
+    }
+
+    /* Задача ForkJoinPool не сериализуется, а RecursiveTask объявлен Serializable только формально */
+    @SuppressWarnings("serial")
+    private class ChunkTask extends RecursiveTask<List<Task>> {
+
+        private final FileChannel channel;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, List<long[]> chunks, int from, int to) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            if (to - from == 1) {
+                return parseChunk(channel, chunks.get(from));
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, chunks, from, middle);
+            ChunkTask right = new ChunkTask(channel, chunks, middle, to);
+            right.fork();
+            List<Task> result = left.compute();
+            result.addAll(right.join());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package storage;
+
+import exceptions.FileLoadException;
+import exceptions.ManagerSaveException;
+import model.Task;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/* Файл данных из слотов фиксированного размера. Каждая запись (бинарный формат BinaryTaskFormat)
+занимает головной слот и, если не помещается, цепочку слотов продолжения.
+Изменённая запись пишется в свободные слоты с новой версией, и только после force старый
+головной слот помечается свободным, поэтому сбой посередине оставляет на диске старую или
+новую версию записи. При загрузке для каждого id выбирается голова с максимальной версией,
+а оставшиеся после такого сбоя старые головы помечаются свободными и на диске. Иначе после
+удаления записи (её актуальная голова становится свободной) следующая загрузка вернула бы
+устаревшую версию. Длина данных в слоте хранится в short, поэтому слот не больше Short.MAX_VALUE */
+public class SlotFile implements Closeable {
+
+    public static final int DEFAULT_SLOT_SIZE = 128;
+    public static final int MAX_SLOT_SIZE = Short.MAX_VALUE;
+    static final int FILE_HEADER_SIZE = 16;
+    static final int SLOT_HEADER_SIZE = 15;
+
+    private static final byte[] MAGIC = {'K', 'N', 'S', 'L'};
+    private static final int VERSION = 1;
+    private static final byte FREE = 0;
+    private static final byte HEAD = 1;
+    private static final byte CONTINUATION = 2;
+    private static final int NO_NEXT = -1;
+
+    private final FileChannel channel;
+    private final boolean force;
+    private final int slotSize;
+    private final Map<Integer, int[]> chains = new HashMap<>();
+    private final TreeSet<Integer> freeSlots = new TreeSet<>();
+    private int slotCount;
+    private long nextVersion = 1;
+
+    public SlotFile(File file, int slotSize, boolean force) {
+        this.force = force;
+        try {
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() < FILE_HEADER_SIZE) {
+                if (!isValidSlotSize(slotSize)) {
+                    channel.close();
+                    throw new IllegalArgumentException("Некорректный размер слота: " + slotSize);
+                }
+                this.slotSize = slotSize;
+                writeFileHeader();
+            } else {
+                this.slotSize = readFileHeader();
+            }
+            slotCount = (int) ((channel.size() - FILE_HEADER_SIZE) / this.slotSize);
+        } catch (IOException exp) {
+            throw new ManagerSaveException("Не удалось открыть файл слотов", exp);
+        }
+    }
+
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    /* Сканирует все слоты и строит индекс id -> цепочка слотов. Слоты, не входящие в актуальные
+    цепочки (устаревшие версии, оборванные записи), становятся свободными */
+    public synchronized List<Task> load() throws FileLoadException {
+        chains.clear();
+        freeSlots.clear();
+        Map<Integer, Task> loaded = new HashMap<>();
+        Map<Integer, Long> versions = new HashMap<>();
+        boolean[] used = new boolean[slotCount];
+        List<Integer> heads = new ArrayList<>();
+        try {
+            ByteBuffer slot = ByteBuffer.allocate(slotSize);
+            for (int index = 0; index < slotCount; index++) {
+                readSlot(index, slot);
+                if (slot.get(0) != HEAD) {
+                    continue;
+                }
+                heads.add(index);
+                long version = slot.getLong(1);
+                nextVersion = Math.max(nextVersion, version + 1);
+                List<Integer> chain = new ArrayList<>();
+                byte[] payload = readChain(index, slot, chain);
+                if (payload == null) {
+                    continue;
+                }
+                Task task = BinaryTaskFormat.readTask(new ByteArrayInputStream(payload));
+                if (task == null) {
+                    continue;
+                }
+                Long current = versions.get(task.getId());
+                if (current != null && current > version) {
+                    continue;
+                }
+                int[] previous = chains.put(task.getId(), chain.stream().mapToInt(Integer::intValue).toArray());
+                if (previous != null) {
+                    markUsed(used, previous, false);
+                }
+                markUsed(used, chains.get(task.getId()), true);
+                versions.put(task.getId(), version);
+                loaded.put(task.getId(), task);
+            }
+            releaseStaleHeads(heads, used);
+        } catch (IOException exp) {
+            throw new FileLoadException("Произошла ошибка чтения файла слотов", exp);
+        }
+        for (int index = 0; index < slotCount; index++) {
+            if (!used[index]) {
+                freeSlots.add(index);
+            }
+        }
+        return new ArrayList<>(loaded.values());
+    }
+
+    /* Записывает изменившиеся записи и освобождает слоты удалённых. Объём записи пропорционален
+    числу изменений, а не размеру всего файла */
+    public synchronized void write(Collection<Task> changed, Collection<Integer> removed) {
+        try {
+            List<int[]> released = new ArrayList<>();
+            for (Task task : changed) {
+                int[] chain = writeChain(encode(task));
+                int[] previous = chains.put(task.getId(), chain);
+                if (previous != null) {
+                    released.add(previous);
+                }
+            }
+            for (Integer id : removed) {
+                int[] previous = chains.remove(id);
+                if (previous != null) {
+                    released.add(previous);
+                }
+            }
+            forceIfNeeded();
+            if (released.isEmpty()) {
+                return;
+            }
+            ByteBuffer free = ByteBuffer.allocate(1);
+            for (int[] chain : released) {
+                free.clear();
+                free.put(0, FREE);
+                channel.write(free, slotOffset(chain[0]));
+            }
+            forceIfNeeded();
+            for (int[] chain : released) {
+                for (int index : chain) {
+                    freeSlots.add(index);
+                }
+            }
+        } catch (IOException exp) {
+            throw new ManagerSaveException("Произошла ошибка записи в файл слотов", exp);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException exp) {
+            throw new ManagerSaveException("Не удалось закрыть файл слотов", exp);
+        }
+    }
+
+    /* Головы, не попавшие в актуальные цепочки (устаревшие версии и оборванные записи),
+    помечаются свободными на диске, чтобы не воскреснуть после удаления актуальной версии */
+    private void releaseStaleHeads(List<Integer> heads, boolean[] used) throws IOException {
+        ByteBuffer free = ByteBuffer.allocate(1);
+        boolean released = false;
+        for (int index : heads) {
+            if (!used[index]) {
+                free.clear();
+                free.put(0, FREE);
+                channel.write(free, slotOffset(index));
+                released = true;
+            }
+        }
+        if (released) {
+            forceIfNeeded();
+        }
+    }
+
+    private int[] writeChain(byte[] payload) throws IOException {
+        int capacity = slotSize - SLOT_HEADER_SIZE;
+        int count = Math.max(1, (payload.length + capacity - 1) / capacity);
+        int[] chain = new int[count];
+        for (int i = 0; i < count; i++) {
+            chain[i] = allocate();
+        }
+        long version = nextVersion++;
+        ByteBuffer slot = ByteBuffer.allocate(slotSize);
+        /* Голова пишется последней: пока она не записана, цепочка продолжения недостижима */
+        for (int i = count - 1; i >= 0; i--) {
+            int from = i * capacity;
+            int length = Math.min(capacity, payload.length - from);
+            slot.clear();
+            slot.put(i == 0 ? HEAD : CONTINUATION);
+            slot.putLong(version);
+            slot.putInt(i + 1 < count ? chain[i + 1] : NO_NEXT);
+            slot.putShort((short) length);
+            slot.put(payload, from, length);
+            while (slot.hasRemaining()) {
+                slot.put((byte) 0);
+            }
+            slot.flip();
+            long offset = slotOffset(chain[i]);
+            while (slot.hasRemaining()) {
+                offset += channel.write(slot, offset);
+            }
+        }
+        return chain;
+    }
+
+    private byte[] readChain(int head, ByteBuffer slot, List<Integer> chain) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        int capacity = slotSize - SLOT_HEADER_SIZE;
+        long version = slot.getLong(1);
+        int index = head;
+        while (true) {
+            if (chain.contains(index) || chain.size() > slotCount) {
+                return null;
+            }
+            chain.add(index);
+            int next = slot.getInt(9);
+            int length = slot.getShort(13);
+            if (length < 0 || length > capacity) {
+                return null;
+            }
+            payload.write(slot.array(), SLOT_HEADER_SIZE, length);
+            if (next == NO_NEXT) {
+                return payload.toByteArray();
+            }
+            if (next < 0 || next >= slotCount) {
+                return null;
+            }
+            readSlot(next, slot);
+            if (slot.get(0) != CONTINUATION || slot.getLong(1) != version) {
+                return null;
+            }
+            index = next;
+        }
+    }
+
+    private int allocate() {
+        Integer index = freeSlots.pollFirst();
+        return index != null ? index : slotCount++;
+    }
+
+    private void readSlot(int index, ByteBuffer slot) throws IOException {
+        slot.clear();
+        long offset = slotOffset(index);
+        while (slot.hasRemaining()) {
+            int read = channel.read(slot, offset + slot.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        while (slot.hasRemaining()) {
+            slot.put((byte) 0);
+        }
+    }
+
+    private static byte[] encode(Task task) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTaskFormat.writeTask(out, task);
+        return out.toByteArray();
+    }
+
+    private static void markUsed(boolean[] used, int[] chain, boolean value) {
+        for (int index : chain) {
+            used[index] = value;
+        }
+    }
+
+    private static boolean isValidSlotSize(int size) {
+        return size > SLOT_HEADER_SIZE && size <= MAX_SLOT_SIZE;
+    }
+
+    private long slotOffset(int index) {
+        return FILE_HEADER_SIZE + (long) index * slotSize;
+    }
+
+    private void forceIfNeeded() throws IOException {
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    private void writeFileHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.put(MAGIC).putInt(VERSION).putInt(slotSize);
+        header.clear();
+        channel.truncate(0);
+        channel.write(header, 0);
+    }
+
+    private int readFileHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        channel.read(header, 0);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC) || header.getInt(4) != VERSION) {
+            throw new IOException("Файл не является файлом слотов");
+        }
+        int size = header.getInt(8);
+        if (!isValidSlotSize(size)) {
+            throw new IOException("Некорректный размер слота: " + size);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,6 @@
+package storage;
+
+public enum SnapshotFormat {
+    CSV,
+    BINARY
+}
@@ -0,0 +1,7 @@
+package storage;
+
+public enum StorageMode {
+    SNAPSHOT,
+    JOURNAL,
+    SLOTS
+}
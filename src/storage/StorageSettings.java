@@ -0,0 +1,179 @@
+package storage;
+
+public class StorageSettings {
+
+    public static final long DEFAULT_COMPACTION_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_COMPACTION_RECORDS = 500_000;
+    public static final int DEFAULT_GROUP_COMMIT_RECORDS = 64;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    public static final int DEFAULT_WRITE_QUEUE_CAPACITY = 10_000;
+    public static final int DEFAULT_ID_BLOCK_SIZE = 1024;
+
+    private final StorageMode mode;
+    private long compactionBytes = DEFAULT_COMPACTION_BYTES;
+    private int compactionRecords = DEFAULT_COMPACTION_RECORDS;
+    private boolean historyPersisted;
+    private SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+    private Durability durability = Durability.GROUP;
+    private int groupCommitRecords = DEFAULT_GROUP_COMMIT_RECORDS;
+    private long groupCommitWindowMillis;
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private WriteMode writeMode = WriteMode.INLINE;
+    private int writeQueueCapacity = DEFAULT_WRITE_QUEUE_CAPACITY;
+    private int slotSize = SlotFile.DEFAULT_SLOT_SIZE;
+    private boolean compressed;
+    private int compressionBlockSize = BlockCompressedOutputStream.DEFAULT_BLOCK_SIZE;
+    private int idBlockSize = DEFAULT_ID_BLOCK_SIZE;
+    private boolean idRangesLeased;
+
+    public StorageSettings(StorageMode mode) {
+        this.mode = mode;
+    }
+
+    /* Копия всех настроек с другим режимом хранения */
+    public StorageSettings copy(StorageMode mode) {
+        StorageSettings copy = new StorageSettings(mode);
+        copy.compactionBytes = compactionBytes;
+        copy.compactionRecords = compactionRecords;
+        copy.historyPersisted = historyPersisted;
+        copy.snapshotFormat = snapshotFormat;
+        copy.durability = durability;
+        copy.groupCommitRecords = groupCommitRecords;
+        copy.groupCommitWindowMillis = groupCommitWindowMillis;
+        copy.flushIntervalMillis = flushIntervalMillis;
+        copy.writeMode = writeMode;
+        copy.writeQueueCapacity = writeQueueCapacity;
+        copy.slotSize = slotSize;
+        copy.compressed = compressed;
+        copy.compressionBlockSize = compressionBlockSize;
+        copy.idBlockSize = idBlockSize;
+        copy.idRangesLeased = idRangesLeased;
+        return copy;
+    }
+
+    public StorageMode getMode() {
+        return mode;
+    }
+
+    public long getCompactionBytes() {
+        return compactionBytes;
+    }
+
+    public void setCompactionBytes(long compactionBytes) {
+        this.compactionBytes = compactionBytes;
+    }
+
+    public int getCompactionRecords() {
+        return compactionRecords;
+    }
+
+    public void setCompactionRecords(int compactionRecords) {
+        this.compactionRecords = compactionRecords;
+    }
+
+    public boolean isHistoryPersisted() {
+        return historyPersisted;
+    }
+
+    public void setHistoryPersisted(boolean historyPersisted) {
+        this.historyPersisted = historyPersisted;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    public int getGroupCommitRecords() {
+        return groupCommitRecords;
+    }
+
+    public void setGroupCommitRecords(int groupCommitRecords) {
+        this.groupCommitRecords = groupCommitRecords;
+    }
+
+    public long getGroupCommitWindowMillis() {
+        return groupCommitWindowMillis;
+    }
+
+    public void setGroupCommitWindowMillis(long groupCommitWindowMillis) {
+        this.groupCommitWindowMillis = groupCommitWindowMillis;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    public void setWriteMode(WriteMode writeMode) {
+        this.writeMode = writeMode;
+    }
+
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    public void setWriteQueueCapacity(int writeQueueCapacity) {
+        this.writeQueueCapacity = writeQueueCapacity;
+    }
+
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    public void setSlotSize(int slotSize) {
+        this.slotSize = slotSize;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public int getCompressionBlockSize() {
+        return compressionBlockSize;
+    }
+
+    public void setCompressionBlockSize(int compressionBlockSize) {
+        this.compressionBlockSize = compressionBlockSize;
+    }
+
+    public int getIdBlockSize() {
+        return idBlockSize;
+    }
+
+    public void setIdBlockSize(int idBlockSize) {
+        this.idBlockSize = idBlockSize;
+    }
+
+    /* Id арендуются диапазонами через отметку в файле <данные>.ids - для нескольких серверов с общим
+    каталогом данных. По умолчанию id выдаются в памяти и продолжаются после максимального загруженного */
+    public boolean isIdRangesLeased() {
+        return idRangesLeased;
+    }
+
+    public void setIdRangesLeased(boolean idRangesLeased) {
+        this.idRangesLeased = idRangesLeased;
+    }
+}
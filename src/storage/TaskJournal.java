@@ -0,0 +1,318 @@
+package storage;
+
+import exceptions.FileLoadException;
+import exceptions.ManagerSaveException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/* Журнал хранится сегментами <файл>.journal.<номер>. Запись всегда идёт в активный сегмент,
+а закрытые сегменты после снятия снимка удаляются при компакции.
+Durability.SYNC вызывает force после каждой записи, GROUP объединяет записи, пришедшие за окно
+или до N штук, в один force фонового потока, ASYNC сбрасывает данные на диск по таймеру */
+public class TaskJournal implements Closeable {
+
+    private final File base;
+    private final Durability durability;
+    private final int groupCommitRecords;
+    private final long groupCommitWindowNanos;
+    private final long flushIntervalNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final Thread committer;
+    private volatile long activeSegment;
+    private FileChannel channel;
+    private long activeBytes;
+    private int activeRecords;
+    private long writtenSequence;
+    private long syncedSequence;
+    private IOException commitFailure;
+    private boolean closed;
+
+    public TaskJournal(File base, StorageSettings settings) {
+        this.base = base;
+        this.durability = settings.getDurability();
+        this.groupCommitRecords = Math.max(1, settings.getGroupCommitRecords());
+        this.groupCommitWindowNanos = TimeUnit.MILLISECONDS.toNanos(settings.getGroupCommitWindowMillis());
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, settings.getFlushIntervalMillis()));
+        List<File> segments = listSegments();
+        this.activeSegment = segments.isEmpty() ? 1 : segmentNumber(segments.getLast()) + 1;
+        if (durability == Durability.SYNC) {
+            committer = null;
+        } else {
+            committer = new Thread(this::commitLoop, "journal-committer");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    public void append(JournalOperation operation, String payload) {
+        appendAll(List.of(new JournalRecord(operation, payload)));
+    }
+
+    /* Пачка записей уходит в файл одним write и, в зависимости от режима, одним force */
+    public void appendAll(List<JournalRecord> records) {
+        StringBuilder text = new StringBuilder();
+        for (JournalRecord record : records) {
+            text.append(record.getOperation().name()).append(',').append(record.getPayload()).append('\n');
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+        long sequence;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new ManagerSaveException("Журнал закрыт, запись невозможна");
+            }
+            int length = bytes.remaining();
+            if (channel == null) {
+                channel = FileChannel.open(segmentFile(activeSegment).toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            activeBytes += length;
+            activeRecords += records.size();
+            writtenSequence += records.size();
+            sequence = writtenSequence;
+            if (durability == Durability.SYNC) {
+                channel.force(false);
+                syncedSequence = sequence;
+            } else {
+                pending.signal();
+            }
+        } catch (IOException exp) {
+            throw new ManagerSaveException("Произошла ошибка записи в журнал", exp);
+        } finally {
+            lock.unlock();
+        }
+        if (durability == Durability.GROUP) {
+            awaitDurable(sequence);
+        }
+    }
+
+    public long getActiveBytes() {
+        lock.lock();
+        try {
+            return activeBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActiveRecords() {
+        lock.lock();
+        try {
+            return activeRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Закрывает активный сегмент; последующие записи пойдут в новый сегмент */
+    public void rotate() {
+        lock.lock();
+        try {
+            closeChannel();
+            activeSegment++;
+            activeBytes = 0;
+            activeRecords = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<File> sealedSegments() {
+        long active = activeSegment;
+        List<File> sealed = new ArrayList<>();
+        for (File segment : listSegments()) {
+            if (segmentNumber(segment) < active) {
+                sealed.add(segment);
+            }
+        }
+        return sealed;
+    }
+
+    public int replay(BiConsumer<JournalOperation, String> consumer) throws FileLoadException {
+        return replay(listSegments(), consumer);
+    }
+
+    /* Последняя запись сегмента без перевода строки считается недописанной (сбой во время append)
+    и при восстановлении пропускается */
+    public static int replay(List<File> segments, BiConsumer<JournalOperation, String> consumer)
+            throws FileLoadException {
+        int records = 0;
+        for (File segment : segments) {
+            if (!segment.exists()) {
+                continue;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(segment), StandardCharsets.UTF_8))) {
+                StringBuilder record = new StringBuilder();
+                int symbol;
+                while ((symbol = reader.read()) != -1) {
+                    if (symbol != '\n') {
+                        record.append((char) symbol);
+                        continue;
+                    }
+                    if (!record.isEmpty()) {
+                        String line = record.toString();
+                        int separator = line.indexOf(',');
+                        consumer.accept(JournalOperation.valueOf(line.substring(0, separator)),
+                                line.substring(separator + 1));
+                        records++;
+                    }
+                    record.setLength(0);
+                }
+            } catch (IOException exp) {
+                throw new FileLoadException("Произошла ошибка чтения журнала", exp);
+            }
+        }
+        return records;
+    }
+
+    public static void delete(List<File> segments) {
+        for (File segment : segments) {
+            if (segment.exists() && !segment.delete()) {
+                throw new ManagerSaveException("Не удалось удалить сегмент журнала " + segment.getName());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            pending.signalAll();
+            closeChannel();
+        } finally {
+            lock.unlock();
+        }
+        if (committer != null) {
+            try {
+                committer.join();
+            } catch (InterruptedException exp) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (syncedSequence < sequence) {
+                if (commitFailure != null) {
+                    throw new ManagerSaveException("Произошла ошибка сброса журнала на диск", commitFailure);
+                }
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* Фоновый поток группового коммита: один force покрывает все записи, сделанные до него */
+    private void commitLoop() {
+        lock.lock();
+        try {
+            while (true) {
+                while (!closed && syncedSequence == writtenSequence) {
+                    pending.awaitUninterruptibly();
+                }
+                long deadline = System.nanoTime()
+                        + (durability == Durability.GROUP ? groupCommitWindowNanos : flushIntervalNanos);
+                long remaining = deadline - System.nanoTime();
+                while (!closed && remaining > 0
+                        && (durability == Durability.ASYNC || writtenSequence - syncedSequence < groupCommitRecords)) {
+                    pending.awaitNanos(remaining);
+                    remaining = deadline - System.nanoTime();
+                }
+                if (closed) {
+                    return;
+                }
+                long target = writtenSequence;
+                FileChannel targetChannel = channel;
+                IOException failure = null;
+                lock.unlock();
+                try {
+                    if (targetChannel != null) {
+                        targetChannel.force(false);
+                    }
+                } catch (ClosedChannelException exp) {
+                    // сегмент закрыт ротацией, и closeChannel() уже сбросил его на диск
+                } catch (IOException exp) {
+                    failure = exp;
+                } finally {
+                    lock.lock();
+                }
+                if (failure == null) {
+                    syncedSequence = Math.max(syncedSequence, target);
+                } else {
+                    commitFailure = failure;
+                }
+                durable.signalAll();
+            }
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException exp) {
+            throw new ManagerSaveException("Произошла ошибка закрытия журнала", exp);
+        } finally {
+            channel = null;
+        }
+        syncedSequence = writtenSequence;
+        durable.signalAll();
+    }
+
+    private File segmentFile(long number) {
+        return new File(base.getPath() + "." + number);
+    }
+
+    private List<File> listSegments() {
+        File directory = base.getAbsoluteFile().getParentFile();
+        String prefix = base.getName() + ".";
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(prefix)
+                && name.length() > prefix.length()
+                && name.substring(prefix.length()).chars().allMatch(Character::isDigit));
+        List<File> segments = new ArrayList<>();
+        if (files != null) {
+            segments.addAll(List.of(files));
+        }
+        segments.sort(Comparator.comparingLong(this::segmentNumber));
+        return segments;
+    }
+
+    private long segmentNumber(File segment) {
+        return Long.parseLong(segment.getName().substring(base.getName().length() + 1));
+    }
+}
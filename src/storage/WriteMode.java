@@ -0,0 +1,9 @@
+package storage;
+
+/* INLINE - запись в журнал в потоке запроса, ENQUEUED - запрос завершается после постановки
+в очередь потока записи, DURABLE - после того как поток записи записал изменение в журнал */
+public enum WriteMode {
+    INLINE,
+    ENQUEUED,
+    DURABLE
+}
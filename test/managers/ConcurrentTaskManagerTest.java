@@ -0,0 +1,135 @@
+package managers;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.enums.Status;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static model.enums.Status.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentTaskManagerTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 2_000;
+
+    @Test
+    void concurrentWritersKeepIndexesConsistent() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        LocalDateTime base = LocalDateTime.of(2024, 11, 5, 0, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int slot = thread;
+            results.add(pool.submit(() -> {
+                Random random = new Random(slot);
+                List<Integer> kept = new ArrayList<>();
+                start.await();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    /* У каждого потока свои непересекающиеся интервалы */
+                    LocalDateTime time = base.plusHours((long) i * THREADS + slot);
+                    Task created = random.nextBoolean()
+                            ? manager.createTask(new Task("Задача", "Описание", NEW, time, Duration.ofMinutes(30)))
+                            : manager.createSubtask(new Subtask("Подзадача", "Описание",
+                            Status.values()[random.nextInt(3)], epic.getId(), time, Duration.ofMinutes(30)));
+                    manager.getPrioritizedTasks();
+                    manager.getTaskById(created.getId());
+                    if (random.nextInt(4) == 0) {
+                        if (created instanceof Subtask) {
+                            manager.deleteSubtaskById(created.getId());
+                        } else {
+                            manager.deleteTaskById(created.getId());
+                        }
+                    } else {
+                        kept.add(created.getId());
+                    }
+                }
+                return kept;
+            }));
+        }
+        start.countDown();
+        Set<Integer> kept = new HashSet<>();
+        for (Future<List<Integer>> result : results) {
+            kept.addAll(result.get(1, TimeUnit.MINUTES));
+        }
+        pool.shutdown();
+
+        int stored = manager.getAllTasks().size() + manager.getAllSubtasks().size();
+        assertEquals(kept.size(), stored, "Потерялись или задвоились задачи");
+        assertEquals(stored, manager.getPrioritizedTasks().size(), "Приоритетный список разошёлся с хранилищем");
+        assertEquals(stored, manager.getTasksInRange(null, null).size(), "Дерево интервалов разошлось с хранилищем");
+        assertTrue(manager.isEpicStatusConsistent(epic), "Счётчики статусов эпика разошлись");
+        assertTrue(manager.isEpicTimeConsistent(epic), "Время эпика разошлось");
+        assertEquals(1 + THREADS * OPERATIONS, manager.generateId() - 1, "id должны выдаваться без пропусков и повторов");
+    }
+
+    @Test
+    void concurrentReadersSeeCompleteEpicUpdates() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(4);
+        Epic epic = manager.createEpic(new Epic("Эпик 0", "Описание 0"));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> writer = pool.submit(() -> {
+            for (int i = 1; i <= 20_000; i++) {
+                manager.updateEpic(new Epic(epic.getId(), "Эпик " + i, "Описание " + i));
+            }
+        });
+        Future<Integer> reader = pool.submit(() -> {
+            int torn = 0;
+            while (!writer.isDone()) {
+                Epic read = manager.getEpicById(epic.getId());
+                String name = read.getName();
+                String description = read.getDescription();
+                if (!name.substring("Эпик ".length()).equals(description.substring("Описание ".length()))) {
+                    torn++;
+                }
+            }
+            return torn;
+        });
+        writer.get(1, TimeUnit.MINUTES);
+
+        assertEquals(0, reader.get(1, TimeUnit.MINUTES), "Чтение эпика не должно видеть половину обновления");
+        pool.shutdown();
+    }
+
+    @Test
+    void searchDuringEpicRenamesAlwaysFindsEpic() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(4);
+        Epic epic = manager.createEpic(new Epic("Эпик 0", "Описание 0"));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> writer = pool.submit(() -> {
+            for (int i = 1; i <= 20_000; i++) {
+                manager.updateEpic(new Epic(epic.getId(), "Эпик " + i, "Описание " + i));
+            }
+        });
+        Future<Integer> reader = pool.submit(() -> {
+            int missed = 0;
+            while (!writer.isDone()) {
+                if (manager.search("эпик", 10).size() != 1) {
+                    missed++;
+                }
+            }
+            return missed;
+        });
+        writer.get(1, TimeUnit.MINUTES);
+
+        assertEquals(0, reader.get(1, TimeUnit.MINUTES), "Поиск не должен видеть эпик между удалением и добавлением слов");
+        pool.shutdown();
+    }
+}
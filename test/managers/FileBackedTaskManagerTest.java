@@ -7,17 +7,28 @@ import model.Subtask;
 import model.Task;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import storage.BlockCompression;
+import storage.SnapshotFormat;
+import storage.StorageMode;
+import storage.StorageSettings;
+import storage.WriteMode;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static model.enums.Status.*;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 class FileBackedTaskManagerTest {
@@ -92,5 +103,336 @@ class FileBackedTaskManagerTest {
             loadedManager.save();
         });
     }
-}
 
+    @Test
+    void testJournalReplayRestoresState() throws FileLoadException {
+        LocalDateTime startTime1 = LocalDateTime.of(2024, 11, 5, 1, 0);
+        LocalDateTime startTime2 = LocalDateTime.of(2024, 11, 5, 1, 20);
+        LocalDateTime startTime3 = LocalDateTime.of(2024, 11, 5, 1, 45);
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(testFile, StorageMode.JOURNAL);
+        journalManager.createTask(new Task("Задача 1", "Описание задачи 1", NEW,
+                startTime1, Duration.ofMinutes(10)));
+        journalManager.createTask(new Task("Задача 2", "Описание задачи 2", NEW,
+                startTime2, Duration.ofMinutes(20)));
+        journalManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        journalManager.createSubtask(new Subtask("Подзадача 1", "Описание подзадачи 1", NEW,
+                3, startTime3, Duration.ofMinutes(10)));
+        journalManager.updateSubtask(new Subtask(4, "Подзадача 1", "Описание подзадачи 1", DONE,
+                3, startTime3, Duration.ofMinutes(10)));
+        journalManager.deleteTaskById(2);
+        journalManager.close();
+
+        assertEquals(0, testFile.length(), "В режиме журнала файл снимка не должен перезаписываться");
+
+        FileBackedTaskManager loadedManager = journalManager.loadFromFile(testFile);
+
+        assertEquals(journalManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(journalManager.getAllEpics(), loadedManager.getAllEpics());
+        assertEquals(journalManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+        assertEquals(DONE, loadedManager.getEpicById(3).getStatus(), "Статус эпика не восстановлен из журнала");
+        assertNull(loadedManager.getTaskById(2), "Удалённая задача не должна восстанавливаться");
+        loadedManager.close();
+    }
+
+    @Test
+    void testCompactionWritesSnapshotAndKeepsTail() throws FileLoadException {
+        StorageSettings settings = new StorageSettings(StorageMode.JOURNAL);
+        settings.setCompactionRecords(3);
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(testFile, settings);
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        for (int i = 0; i < 10; i++) {
+            journalManager.createTask(new Task("Задача " + i, "Описание задачи " + i, NEW,
+                    startTime.plusMinutes(i * 15L), Duration.ofMinutes(10)));
+        }
+        journalManager.close();
+
+        assertTrue(testFile.length() > 0, "После компакции должен появиться снимок");
+
+        FileBackedTaskManager loadedManager = journalManager.loadFromFile(testFile);
+
+        assertEquals(journalManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(journalManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+        loadedManager.close();
+    }
+
+    @Test
+    void testCompactionKeepsSnapshotCompressed() throws FileLoadException, IOException {
+        StorageSettings settings = new StorageSettings(StorageMode.JOURNAL);
+        settings.setCompactionRecords(3);
+        settings.setCompressed(true);
+        settings.setSnapshotFormat(SnapshotFormat.BINARY);
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(testFile, settings);
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        for (int i = 0; i < 10; i++) {
+            journalManager.createTask(new Task("Задача " + i, "Описание задачи " + i, NEW,
+                    startTime.plusMinutes(i * 15L), Duration.ofMinutes(10)));
+        }
+        journalManager.close();
+
+        byte[] prefix = Files.readAllBytes(testFile.toPath());
+        assertTrue(BlockCompression.hasMagic(prefix, Math.min(prefix.length, 4)),
+                "Снимок после компакции должен остаться сжатым");
+
+        FileBackedTaskManager loadedManager = journalManager.loadFromFile(testFile);
+        assertEquals(journalManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+        loadedManager.close();
+    }
+
+    @Test
+    void testReadsDoNotRewriteFile() {
+        taskManager.createTask(new Task("Задача 1", "Описание задачи 1", NEW,
+                LocalDateTime.of(2024, 11, 5, 1, 0), Duration.ofMinutes(10)));
+        assertTrue(testFile.delete(), "Файл данных должен существовать после создания задачи");
+
+        taskManager.getTaskById(1);
+
+        assertFalse(testFile.exists(), "Чтение задачи не должно перезаписывать файл данных");
+    }
+
+    @Test
+    void testHistoryRestoredFromHistoryLog() throws FileLoadException {
+        StorageSettings settings = new StorageSettings(StorageMode.JOURNAL);
+        settings.setHistoryPersisted(true);
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(testFile, settings);
+        journalManager.createTask(new Task("Задача 1", "Описание задачи 1", NEW,
+                LocalDateTime.of(2024, 11, 5, 1, 0), Duration.ofMinutes(10)));
+        journalManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        journalManager.getTaskById(1);
+        journalManager.getEpicById(2);
+        journalManager.getTaskById(1);
+        journalManager.close();
+
+        FileBackedTaskManager loadedManager = journalManager.loadFromFile(testFile);
+
+        assertEquals(journalManager.getHistory(), loadedManager.getHistory(),
+                "История должна восстанавливаться в том же порядке");
+        loadedManager.close();
+    }
+
+    @Test
+    void testBinarySnapshotRoundTripAndCsvExport() throws FileLoadException, IOException {
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        FileBackedTaskManager binaryManager = new FileBackedTaskManager(testFile, SnapshotFormat.BINARY);
+        binaryManager.createTask(new Task("Задача 1", "Описание задачи 1", NEW,
+                startTime, Duration.ofMinutes(10)));
+        binaryManager.createTask(new Task("Задача 2", "Описание задачи 2", IN_PROGRESS,
+                startTime.plusMinutes(20), null));
+        binaryManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        binaryManager.createSubtask(new Subtask("Подзадача 1", "Описание подзадачи 1", DONE,
+                3, startTime.plusHours(1), Duration.ofSeconds(90)));
+
+        FileBackedTaskManager loadedManager = binaryManager.loadFromFile(testFile);
+
+        assertEquals(binaryManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(binaryManager.getAllEpics(), loadedManager.getAllEpics());
+        assertEquals(binaryManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+        assertEquals(DONE, loadedManager.getEpicById(3).getStatus());
+        assertEquals(Duration.ofSeconds(90), loadedManager.getSubtaskById(4).getDuration());
+
+        File csvFile = File.createTempFile("exportTasks", ".csv");
+        binaryManager.exportToCsv(csvFile);
+        FileBackedTaskManager importedManager = binaryManager.loadFromFile(csvFile);
+
+        assertEquals(binaryManager.getAllTasks(), importedManager.getAllTasks());
+        assertEquals(binaryManager.getAllEpics(), importedManager.getAllEpics());
+        assertEquals(binaryManager.getAllSubtasks(), importedManager.getAllSubtasks());
+    }
+
+    @Test
+    void testEnqueuedWritesAreFlushedOnClose() throws FileLoadException {
+        StorageSettings settings = new StorageSettings(StorageMode.JOURNAL);
+        settings.setWriteMode(WriteMode.ENQUEUED);
+        settings.setWriteQueueCapacity(4);
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(testFile, settings);
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        for (int i = 0; i < 50; i++) {
+            journalManager.createTask(new Task("Задача " + i, "Описание задачи " + i, NEW,
+                    startTime.plusMinutes(i * 15L), Duration.ofMinutes(10)));
+        }
+        journalManager.deleteTaskById(10);
+        journalManager.close();
+
+        FileBackedTaskManager loadedManager = journalManager.loadFromFile(testFile);
+
+        assertEquals(journalManager.getAllTasks(), loadedManager.getAllTasks(),
+                "Все изменения из очереди должны попасть в журнал при закрытии");
+        loadedManager.close();
+    }
+
+    @Test
+    void testSlotModeRewritesOnlyChangedRecords() throws FileLoadException {
+        StorageSettings settings = new StorageSettings(StorageMode.SLOTS);
+        settings.setSlotSize(64);
+        FileBackedTaskManager slotManager = new FileBackedTaskManager(testFile, settings);
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        slotManager.createTask(new Task("Задача 1", "Описание задачи 1", NEW,
+                startTime, Duration.ofMinutes(10)));
+        slotManager.createTask(new Task("Задача 2", "Очень длинное описание задачи 2, которое не помещается"
+                + " в один слот и занимает цепочку слотов продолжения", NEW,
+                startTime.plusMinutes(20), Duration.ofMinutes(10)));
+        slotManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        slotManager.createSubtask(new Subtask("Подзадача 1", "Описание подзадачи 1", NEW,
+                3, startTime.plusHours(1), Duration.ofMinutes(30)));
+        long length = testFile.length();
+
+        slotManager.updateSubtask(new Subtask(4, "Подзадача 1", "Описание подзадачи 1", DONE,
+                3, startTime.plusHours(1), Duration.ofMinutes(30)));
+        slotManager.deleteTaskById(1);
+        slotManager.updateTask(new Task(2, "Задача 2", "Короткое описание", IN_PROGRESS,
+                startTime.plusMinutes(20), Duration.ofMinutes(10)));
+        slotManager.close();
+
+        assertTrue(testFile.length() <= length + 3L * 64,
+                "Изменение записей должно переиспользовать освободившиеся слоты");
+
+        FileBackedTaskManager loadedManager = slotManager.loadFromFile(testFile);
+
+        assertEquals(slotManager.getAllTasks(), loadedManager.getAllTasks());
+        assertEquals(slotManager.getAllEpics(), loadedManager.getAllEpics());
+        assertEquals(slotManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+        assertEquals(DONE, loadedManager.getEpicById(3).getStatus(), "Статус эпика не сохранён в слоте");
+        loadedManager.close();
+    }
+
+    @Test
+    void testCompressedSnapshotRoundTrip() throws FileLoadException {
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            StorageSettings settings = new StorageSettings(StorageMode.SNAPSHOT);
+            settings.setSnapshotFormat(format);
+            settings.setCompressed(true);
+            settings.setCompressionBlockSize(256);
+            FileBackedTaskManager compressedManager = new FileBackedTaskManager(testFile, settings);
+            compressedManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+            for (int i = 0; i < 100; i++) {
+                compressedManager.createSubtask(new Subtask("Подзадача " + i, "Описание подзадачи " + i, NEW,
+                        1, startTime.plusMinutes(i * 15L), Duration.ofMinutes(10)));
+            }
+
+            FileBackedTaskManager loadedManager = compressedManager.loadFromFile(testFile);
+
+            assertEquals(compressedManager.getAllEpics(), loadedManager.getAllEpics());
+            assertEquals(compressedManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+            assertEquals(compressedManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+        }
+    }
+
+    @Test
+    void testBatchIsPersistedInEveryStorageMode() throws FileLoadException, IOException {
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        for (StorageMode mode : StorageMode.values()) {
+            for (WriteMode writeMode : WriteMode.values()) {
+                if (mode != StorageMode.JOURNAL && writeMode != WriteMode.INLINE) {
+                    continue;
+                }
+                File batchFile = File.createTempFile("testTasks", ".data");
+                StorageSettings settings = new StorageSettings(mode);
+                settings.setWriteMode(writeMode);
+                FileBackedTaskManager batchManager = new FileBackedTaskManager(batchFile, settings);
+                batchManager.createAll(List.of(new Epic("Эпик 1", "Описание эпика 1"),
+                        new Task("Задача 1", "Описание задачи 1", NEW, startTime, Duration.ofMinutes(10))));
+                batchManager.createAll(List.of(
+                        new Subtask("Подзадача 1", "Описание подзадачи 1", DONE, 1,
+                                startTime.plusHours(1), Duration.ofMinutes(10)),
+                        new Subtask("Подзадача 2", "Описание подзадачи 2", NEW, 1,
+                                startTime.plusHours(2), Duration.ofMinutes(10)),
+                        new Task("Задача 2", "Описание задачи 2", NEW, startTime.plusHours(3), Duration.ofMinutes(10))));
+                batchManager.updateAll(List.of(
+                        new Subtask(4, "Подзадача 2", "Описание подзадачи 2", DONE, 1,
+                                startTime.plusHours(2), Duration.ofMinutes(10)),
+                        new Epic(1, "Эпик 1", "Новое описание эпика 1")));
+                batchManager.deleteAll(List.of(2, 3));
+                batchManager.close();
+
+                FileBackedTaskManager loadedManager = batchManager.loadFromFile(batchFile);
+
+                assertEquals(batchManager.getAllTasks(), loadedManager.getAllTasks(), "Режим " + mode);
+                assertEquals(batchManager.getAllSubtasks(), loadedManager.getAllSubtasks(), "Режим " + mode);
+                Epic loadedEpic = loadedManager.getEpicById(1);
+                assertEquals("Новое описание эпика 1", loadedEpic.getDescription(), "Режим " + mode);
+                assertEquals(DONE, loadedEpic.getStatus(), "Статус эпика после пакета, режим " + mode);
+                assertEquals(List.of(4), loadedEpic.getEpicSubtasks(), "Режим " + mode);
+                assertEquals(List.of(4), loadedManager.getSubtasksByStatus(DONE).stream().map(Task::getId).toList(),
+                        "Индекс статусов восстанавливается при загрузке, режим " + mode);
+                loadedManager.close();
+            }
+        }
+    }
+
+    @Test
+    void testMixedBatchIsPersistedInEveryStorageMode() throws FileLoadException, IOException {
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        for (StorageMode mode : StorageMode.values()) {
+            File batchFile = File.createTempFile("testTasks", ".data");
+            FileBackedTaskManager batchManager = new FileBackedTaskManager(batchFile, new StorageSettings(mode));
+            batchManager.createAll(List.of(new Epic("Эпик 1", "Описание эпика 1"),
+                    new Task("Задача 1", "Описание задачи 1", NEW, startTime, Duration.ofMinutes(10))));
+            batchManager.createSubtask(new Subtask("Подзадача 1", "Описание подзадачи 1", NEW, 1,
+                    startTime.plusHours(1), Duration.ofMinutes(10)));
+            /* Создания, обновления и удаления одного пакета: записи журнала идут в порядке применения */
+            batchManager.applyBatch(
+                    List.of(new Subtask("Подзадача 2", "Описание подзадачи 2", DONE, 1,
+                                    startTime.plusHours(3), Duration.ofMinutes(10)),
+                            new Task("Задача 2", "Описание задачи 2", NEW, startTime.plusHours(2), Duration.ofMinutes(10))),
+                    List.of(new Epic(1, "Эпик 1", "Новое описание эпика 1"),
+                            new Task(2, "Задача 1", "Описание задачи 1", DONE, startTime, Duration.ofMinutes(10))),
+                    List.of(3));
+            batchManager.close();
+
+            FileBackedTaskManager loadedManager = batchManager.loadFromFile(batchFile);
+
+            assertEquals(List.of(2, 5), loadedManager.getAllTasks().stream().map(Task::getId).toList(), "Режим " + mode);
+            assertEquals(DONE, loadedManager.getTaskById(2).getStatus(), "Режим " + mode);
+            assertEquals(batchManager.getAllSubtasks(), loadedManager.getAllSubtasks(), "Режим " + mode);
+            Epic loadedEpic = loadedManager.getEpicById(1);
+            assertEquals("Новое описание эпика 1", loadedEpic.getDescription(), "Режим " + mode);
+            assertEquals(List.of(4), loadedEpic.getEpicSubtasks(), "Режим " + mode);
+            assertEquals(DONE, loadedEpic.getStatus(), "Статус эпика после пакета, режим " + mode);
+            loadedManager.close();
+        }
+    }
+
+    @Test
+    void testNewIdsDoNotCollideWithLoadedOnes() throws FileLoadException {
+        Epic epic = taskManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        taskManager.createSubtask(new Subtask("Подзадача 1", "Описание подзадачи 1", NEW, epic.getId()));
+        Task task = taskManager.createTask(new Task("Задача 1", "Описание задачи 1"));
+
+        FileBackedTaskManager loadedManager = new FileBackedTaskManager(testFile).loadFromFile(testFile);
+        Task created = loadedManager.createTask(new Task("Задача 2", "Описание задачи 2"));
+        assertTrue(created.getId() > task.getId(), "Новый id не должен совпадать с загруженными");
+        assertEquals(2, loadedManager.getAllTasks().size());
+        assertFalse(new File(testFile.getPath() + FileBackedTaskManager.IDS_SUFFIX).exists(),
+                "Без аренды диапазонов файл отметки id не создаётся");
+
+        /* Аренда диапазонов над файлом без отметки id, например записанным до её включения */
+        File legacyFile = new File(testFile.getPath() + ".legacy");
+        loadedManager.exportToCsv(legacyFile);
+        StorageSettings leased = new StorageSettings(StorageMode.SNAPSHOT);
+        leased.setIdRangesLeased(true);
+        FileBackedTaskManager legacyManager = new FileBackedTaskManager(legacyFile, leased).loadFromFile(legacyFile);
+        Task legacyTask = legacyManager.createTask(new Task("Задача 3", "Описание задачи 3"));
+        assertEquals(created.getId() + 1, legacyTask.getId(), "Новые id должны идти после максимального загруженного");
+        assertEquals(3, legacyManager.getAllTasks().size());
+        legacyFile.delete();
+        new File(legacyFile.getPath() + FileBackedTaskManager.IDS_SUFFIX).delete();
+    }
+
+    @Test
+    void testLeasingManagersOnOneFileGetDisjointIds() {
+        StorageSettings settings = new StorageSettings(StorageMode.SNAPSHOT);
+        settings.setIdRangesLeased(true);
+        settings.setIdBlockSize(4);
+        FileBackedTaskManager first = new FileBackedTaskManager(testFile, settings);
+        FileBackedTaskManager second = new FileBackedTaskManager(testFile, settings);
+        File idsFile = new File(testFile.getPath() + FileBackedTaskManager.IDS_SUFFIX);
+
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ids.add(first.createTask(new Task("Задача", "Описание")).getId()), "Повторный id у первого");
+            assertTrue(ids.add(second.createTask(new Task("Задача", "Описание")).getId()), "Повторный id у второго");
+        }
+        assertTrue(idsFile.exists(), "Арендующий менеджер хранит отметку рядом с файлом данных");
+        idsFile.delete();
+    }
+}
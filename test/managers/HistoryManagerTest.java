@@ -13,6 +13,7 @@ import java.util.List;
 import static model.enums.Status.IN_PROGRESS;
 import static model.enums.Status.NEW;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class HistoryManagerTest {
 
@@ -68,6 +69,21 @@ class HistoryManagerTest {
         assertEquals(task, list.get(2), "Задача 1 должна быть третьей в списке");
     }
 
+    @Test
+    void replaceKeepsPositionAndSkipsUnviewed() {
+        Task task = new Task(1, "Задача 1", "Описание задачи 1");
+        Epic epic = new Epic(2, "Эпик 1", "Описание эпика 1");
+        historyManager.add(epic);
+        historyManager.add(task);
+
+        Epic renamed = new Epic(2, "Эпик 2", "Описание эпика 2");
+        historyManager.replace(renamed);
+        historyManager.replace(new Task(3, "Задача 3", "Описание задачи 3"));
+
+        assertEquals(List.of(renamed, task), historyManager.getHistory(), "Подмена не должна менять порядок");
+        assertSame(renamed, historyManager.getHistory().getFirst(), "В истории должна быть новая версия");
+    }
+
     @Test
     void removeFirstElement() {
         LocalDateTime startTime1 = LocalDateTime.of(2024, 11, 5, 1, 0);
@@ -161,4 +177,21 @@ class HistoryManagerTest {
     void historyIsEmpty() {
         assertEquals(0, historyManager.getHistory().size(), "Длина списка должна быть равна 0");
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamHistoryFollowsViewOrder() {
+        Task task = new Task(1, "Задача 1", "Описание задачи 1");
+        Epic epic = new Epic(2, "Эпик 1", "Описание эпика 1");
+        Task other = new Task(3, "Задача 2", "Описание задачи 2");
+
+        historyManager.add(task);
+        historyManager.add(epic);
+        historyManager.add(other);
+        historyManager.add(task);
+        historyManager.remove(epic.getId());
+
+        assertEquals(List.of(other, task), historyManager.streamHistory().toList(),
+                "Поток должен идти от старых просмотров к новым без удалённых");
+        assertEquals(historyManager.getHistory(), historyManager.streamHistory().toList());
+    }
+}
@@ -0,0 +1,98 @@
+package managers;
+
+import org.junit.jupiter.api.Test;
+import storage.IdRangeFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdAllocatorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 5_000;
+
+    @Test
+    void concurrentCallersGetUniqueIds() throws Exception {
+        IdAllocator allocator = new IdAllocator();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            results.add(pool.submit(() -> {
+                List<Integer> ids = new ArrayList<>(IDS_PER_THREAD);
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    ids.add(allocator.nextId());
+                }
+                return ids;
+            }));
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (Future<List<Integer>> result : results) {
+            ids.addAll(result.get(30, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size(), "Id не должны повторяться");
+        assertEquals(1, ids.stream().min(Integer::compare).orElseThrow(), "Id должны начинаться с 1");
+    }
+
+    @Test
+    void skipToMovesPastTakenIds() {
+        IdAllocator allocator = new IdAllocator();
+        assertEquals(1, allocator.nextId());
+
+        allocator.skipTo(10);
+        assertEquals(10, allocator.nextId());
+
+        allocator.skipTo(5_000);
+        assertEquals(5_000, allocator.nextId());
+
+        allocator.skipTo(3);
+        assertEquals(5_001, allocator.nextId(), "Отметка не должна сдвигаться назад");
+    }
+
+    @Test
+    void instancesSharingFileGetDisjointRanges() throws IOException {
+        File file = File.createTempFile("testTasks", ".ids");
+        file.delete();
+        IdAllocator first = new IdAllocator(new IdRangeFile(file), 4);
+        IdAllocator second = new IdAllocator(new IdRangeFile(file), 4);
+
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ids.add(first.nextId()), "Повторный id у первого экземпляра");
+            assertTrue(ids.add(second.nextId()), "Повторный id у второго экземпляра");
+        }
+        assertEquals(24 + 1, new IdRangeFile(file).getMark(), "Каждый экземпляр арендовал три диапазона по 4 id");
+
+        IdAllocator restarted = new IdAllocator(new IdRangeFile(file), 4);
+        assertEquals(25, restarted.nextId(), "После перезапуска id продолжаются с отметки");
+        file.delete();
+    }
+
+    @Test
+    void markIsRewrittenInPlaceWithFixedWidth() throws IOException {
+        File file = File.createTempFile("testTasks", ".ids");
+        Files.writeString(file.toPath(), "7\n");
+        IdRangeFile ranges = new IdRangeFile(file);
+
+        assertEquals(7, ranges.lease(4), "Отметка старого формата должна читаться");
+        long length = file.length();
+        ranges.lease(1_000_000);
+
+        assertEquals(length, file.length(), "Отметка должна переписываться на месте без смены длины");
+        assertEquals(1_000_011, ranges.getMark());
+        file.delete();
+    }
+}
@@ -0,0 +1,88 @@
+package managers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/* Сравнение IntObjectMap и HashMap<Integer, Object> по занимаемой памяти и времени поиска.
+Запуск: java managers.IntObjectMapBenchmark [число элементов] */
+public class IntObjectMapBenchmark {
+
+    private static final int LOOKUPS = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Object value = new Object();
+        int[] probes = new int[LOOKUPS];
+        Random random = new Random(1);
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = 1 + random.nextInt(size);
+        }
+
+        long hashMapBytes = footprint(() -> {
+            Map<Integer, Object> map = new HashMap<>();
+            for (int id = 1; id <= size; id++) {
+                map.put(id, value);
+            }
+            return map;
+        });
+        long intMapBytes = footprint(() -> {
+            IntObjectMap<Object> map = new IntObjectMap<>();
+            for (int id = 1; id <= size; id++) {
+                map.put(id, value);
+            }
+            return map;
+        });
+        System.out.printf("Память на %d записей: HashMap %.1f байт/запись, IntObjectMap %.1f байт/запись%n",
+                size, (double) hashMapBytes / size, (double) intMapBytes / size);
+
+        Map<Integer, Object> hashMap = new HashMap<>();
+        IntObjectMap<Object> intMap = new IntObjectMap<>();
+        for (int id = 1; id <= size; id++) {
+            hashMap.put(id, value);
+            intMap.put(id, value);
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            long hashMapNanos = lookups(probes, hashMap::get);
+            long intMapNanos = lookups(probes, intMap::get);
+            System.out.printf("Раунд %d: HashMap %.1f нс/поиск, IntObjectMap %.1f нс/поиск%n", round + 1,
+                    (double) hashMapNanos / LOOKUPS, (double) intMapNanos / LOOKUPS);
+        }
+    }
+
+    private static long footprint(Supplier<Object> factory) {
+        long before = usedMemory();
+        Object map = factory.get();
+        long after = usedMemory();
+        if (map.hashCode() == 42) {
+            System.out.println();
+        }
+        return after - before;
+    }
+
+    private static long lookups(int[] probes, IntFunction<Object> lookup) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (int probe : probes) {
+            if (lookup.apply(probe) != null) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found != probes.length) {
+            throw new IllegalStateException("Найдены не все ключи");
+        }
+        return elapsed;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
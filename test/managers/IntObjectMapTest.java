@@ -0,0 +1,49 @@
+package managers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntObjectMapTest {
+
+    @Test
+    void behavesLikeHashMap() {
+        Random random = new Random(13);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int step = 0; step < 100_000; step++) {
+            int key = random.nextInt(2_000) - 200;
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.remove(key), map.remove(key), "remove(" + key + ")");
+                case 1 -> assertEquals(expected.get(key), map.get(key), "get(" + key + ")");
+                default -> assertEquals(expected.put(key, "v" + step), map.put(key, "v" + step), "put(" + key + ")");
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+    }
+
+    @Test
+    void sequentialKeysIterateInOrder() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        List<Integer> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (int key = 1; key <= 1_000; key++) {
+            if (key != 500) {
+                keys.add(key);
+                values.add("v" + key);
+            }
+            map.put(key, "v" + key);
+        }
+        map.remove(500);
+
+        assertEquals(values, new ArrayList<>(map.values()), "Последовательные id должны обходиться по возрастанию");
+        assertEquals(keys, new ArrayList<>(map.keySet()));
+    }
+}
@@ -0,0 +1,52 @@
+package managers;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntervalTreeTest {
+
+    @Test
+    void overlappingMatchesLinearScan() {
+        LocalDateTime base = LocalDateTime.of(2024, 11, 5, 0, 0);
+        Random random = new Random(7);
+        IntervalTree tree = new IntervalTree();
+        Map<Integer, LocalDateTime[]> intervals = new HashMap<>();
+        for (int step = 0; step < 5_000; step++) {
+            int id = random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                tree.remove(id);
+                intervals.remove(id);
+            } else {
+                LocalDateTime start = base.plusMinutes(random.nextInt(10_000));
+                LocalDateTime end = start.plusMinutes(random.nextInt(120));
+                tree.add(id, start, end);
+                intervals.put(id, new LocalDateTime[]{start, end});
+            }
+
+            LocalDateTime from = base.plusMinutes(random.nextInt(10_000));
+            LocalDateTime to = from.plusMinutes(1 + random.nextInt(300));
+            List<Integer> expected = new ArrayList<>();
+            for (Map.Entry<Integer, LocalDateTime[]> entry : intervals.entrySet()) {
+                LocalDateTime[] interval = entry.getValue();
+                if (interval[0].isBefore(to) && interval[1].isAfter(from)) {
+                    expected.add(entry.getKey());
+                }
+            }
+            List<Integer> actual = tree.overlapping(from, to);
+            expected.sort(null);
+            actual.sort(null);
+
+            assertEquals(expected, actual, "Результат дерева расходится с перебором на шаге " + step);
+            assertEquals(!expected.isEmpty(), tree.overlaps(from, to, -1));
+        }
+        assertEquals(intervals.size(), tree.size());
+    }
+}
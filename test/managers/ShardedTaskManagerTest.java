@@ -0,0 +1,251 @@
+package managers;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static model.enums.Status.DONE;
+import static model.enums.Status.IN_PROGRESS;
+import static model.enums.Status.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedTaskManagerTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 11, 5, 0, 0);
+    private static final int SHARDS = 4;
+
+    @Test
+    void subtasksLiveInShardOfTheirEpic() {
+        ShardedTaskManager manager = new ShardedTaskManager(SHARDS);
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < SHARDS; i++) {
+            Epic epic = manager.createEpic(new Epic("Эпик " + i, "Описание"));
+            usedShards.add(manager.shardIndex(epic.getId()));
+            for (int j = 0; j < 3; j++) {
+                Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание",
+                        j == 0 ? DONE : NEW, epic.getId()));
+                assertEquals(manager.shardIndex(epic.getId()), manager.shardIndex(subtask.getId()),
+                        "Подзадача должна лежать в шарде эпика");
+                manager.getSubtaskById(subtask.getId());
+            }
+            assertEquals(IN_PROGRESS, manager.getEpicById(epic.getId()).getStatus());
+            assertEquals(3, manager.getEpicSubtasks(epic.getId()).size());
+        }
+
+        assertEquals(SHARDS, usedShards.size(), "Эпики должны распределяться по всем шардам");
+        assertEquals(SHARDS * 3, manager.getAllSubtasks().size());
+        assertEquals(SHARDS * 4, manager.getHistory().size(), "История должна быть общей для всех шардов");
+    }
+
+    @Test
+    void overlapsAreCheckedAcrossShards() {
+        ShardedTaskManager manager = new ShardedTaskManager(SHARDS);
+        Task task = manager.createTask(new Task("Задача 1", "Описание", NEW, BASE, Duration.ofMinutes(30)));
+        Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание"));
+        assertTrue(manager.shardIndex(task.getId()) != manager.shardIndex(epic.getId()));
+
+        assertNull(manager.createTask(new Task("Задача 2", "Описание", NEW,
+                BASE.plusMinutes(10), Duration.ofMinutes(30))), "Пересечение с задачей другого шарда");
+        assertNull(manager.createSubtask(new Subtask("Подзадача 1", "Описание", NEW, epic.getId(),
+                BASE.plusMinutes(20), Duration.ofMinutes(30))), "Пересечение с задачей другого шарда");
+
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача 1", "Описание", NEW, epic.getId(),
+                BASE.plusHours(1), Duration.ofMinutes(30)));
+        assertNotNull(subtask);
+        assertThrows(IllegalArgumentException.class, () -> manager.updateTask(new Task(task.getId(), "Задача 1",
+                "Описание", NEW, BASE.plusMinutes(50), Duration.ofMinutes(30))));
+        manager.updateSubtask(new Subtask(subtask.getId(), "Подзадача 1", "Описание", DONE, epic.getId(),
+                BASE.plusMinutes(15), Duration.ofMinutes(30)));
+
+        assertEquals(BASE.plusHours(1), manager.getSubtaskById(subtask.getId()).getStartTime(),
+                "Пересекающееся изменение не должно применяться");
+        assertEquals(List.of(task, subtask), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void batchIsValidatedAcrossShards() {
+        ShardedTaskManager manager = new ShardedTaskManager(SHARDS);
+        Task first = new Task("Задача 1", "Описание", NEW, BASE, Duration.ofMinutes(30));
+        Task second = new Task("Задача 2", "Описание", NEW, BASE.plusMinutes(10), Duration.ofMinutes(30));
+
+        assertThrows(IllegalArgumentException.class, () -> manager.createAll(List.of(first, second)));
+        assertTrue(manager.getAllTasks().isEmpty(), "Отклонённый пакет не должен создавать задачи");
+
+        second.setStartTime(BASE.plusHours(1));
+        manager.createAll(List.of(first, second));
+        assertTrue(manager.shardIndex(first.getId()) != manager.shardIndex(second.getId()));
+
+        manager.updateAll(List.of(
+                new Task(first.getId(), "Задача 1", "Описание", NEW, BASE.plusHours(1), Duration.ofMinutes(30)),
+                new Task(second.getId(), "Задача 2", "Описание", NEW, BASE, Duration.ofMinutes(30))));
+        assertEquals(List.of(second.getId(), first.getId()),
+                manager.getPrioritizedTasks().stream().map(Task::getId).toList(), "Задачи должны поменяться местами");
+
+        assertThrows(IllegalArgumentException.class, () -> manager.updateAll(List.of(
+                new Task(first.getId(), "Задача 1", "Описание", NEW, BASE, Duration.ofMinutes(10)),
+                new Task(999, "Задача", "Описание", NEW, null, null))));
+        assertEquals(BASE.plusHours(1), manager.getTaskById(first.getId()).getStartTime());
+
+        manager.deleteAll(List.of(first.getId(), second.getId()));
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+
+    @Test
+    void matchesInMemoryManagerOnRandomOperations() {
+        ShardedTaskManager manager = new ShardedTaskManager(SHARDS);
+        InMemoryTaskManager reference = new InMemoryTaskManager();
+        Random random = new Random(24);
+        Map<Integer, Integer> referenceIds = new HashMap<>();
+        List<Integer> epicIds = new ArrayList<>();
+        List<Integer> itemIds = new ArrayList<>();
+
+        for (int i = 0; i < 3_000; i++) {
+            LocalDateTime start = random.nextInt(8) == 0 ? null : BASE.plusMinutes(random.nextInt(2_000) * 10L);
+            Duration duration = Duration.ofMinutes(random.nextInt(5) * 10L);
+            int operation = random.nextInt(10);
+            if (operation == 0 || epicIds.isEmpty()) {
+                Epic first = manager.createEpic(new Epic("Эпик", "Описание"));
+                referenceIds.put(first.getId(), reference.createEpic(new Epic("Эпик", "Описание")).getId());
+                epicIds.add(first.getId());
+            } else if (operation <= 3) {
+                Task first = manager.createTask(new Task("Задача", "Описание", NEW, start, duration));
+                Task second = reference.createTask(new Task("Задача", "Описание", NEW, start, duration));
+                assertEquals(second == null, first == null, "Разный результат проверки пересечений");
+                if (first != null) {
+                    referenceIds.put(first.getId(), second.getId());
+                    itemIds.add(first.getId());
+                }
+            } else if (operation <= 6) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                Subtask first = manager.createSubtask(new Subtask("Подзадача", "Описание",
+                        random.nextBoolean() ? NEW : DONE, epicId, start, duration));
+                Subtask second = reference.createSubtask(new Subtask("Подзадача", "Описание",
+                        first == null ? NEW : first.getStatus(), referenceIds.get(epicId), start, duration));
+                assertEquals(second == null, first == null, "Разный результат проверки пересечений");
+                if (first != null) {
+                    referenceIds.put(first.getId(), second.getId());
+                    itemIds.add(first.getId());
+                }
+            } else if (operation == 7 && !itemIds.isEmpty()) {
+                int id = itemIds.remove(random.nextInt(itemIds.size()));
+                manager.deleteTaskById(id);
+                manager.deleteSubtaskById(id);
+                reference.deleteTaskById(referenceIds.get(id));
+                reference.deleteSubtaskById(referenceIds.get(id));
+            } else if (operation == 8) {
+                LocalDateTime to = start == null ? null : start.plusMinutes(random.nextInt(300));
+                assertSameSchedule(referenceIds, reference.getTasksInRange(start, to), manager.getTasksInRange(start, to));
+                /* При одинаковом времени начала порядок задаётся id, поэтому на границе limit состав может
+                отличаться, а последовательность времени начала - нет */
+                assertEquals(reference.getNextTasks(start, 5).stream().map(Task::getStartTime).toList(),
+                        manager.getNextTasks(start, 5).stream().map(Task::getStartTime).toList());
+                assertEquals(reference.getTasksInRange(start, to, 3).stream().map(Task::getStartTime).toList(),
+                        manager.getTasksInRange(start, to, 3).stream().map(Task::getStartTime).toList());
+            } else {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                Epic first = manager.getEpicById(epicId);
+                Epic second = reference.getEpicById(referenceIds.get(epicId));
+                assertEquals(second.getStatus(), first.getStatus());
+                assertEquals(second.getStartTime(), first.getStartTime());
+                assertEquals(second.getEndTime(), first.getEndTime());
+            }
+        }
+
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        assertEquals(prioritized, manager.streamPrioritizedTasks().toList());
+        assertSameSchedule(referenceIds, reference.getPrioritizedTasks(), prioritized);
+        assertEquals(reference.getAllTasks().size(), manager.getAllTasks().size());
+        assertEquals(reference.getAllSubtasks().size(), manager.getAllSubtasks().size());
+        assertEquals(reference.getSubtasksByStatus(DONE).size(), manager.getSubtasksByStatus(DONE).size());
+
+        List<Integer> paged = new ArrayList<>();
+        List<Subtask> page;
+        int after = 0;
+        do {
+            page = manager.getSubtasksPage(after, 50);
+            page.forEach(subtask -> paged.add(subtask.getId()));
+            after = page.isEmpty() ? after : page.getLast().getId();
+        } while (page.size() == 50);
+        assertEquals(manager.getAllSubtasks().stream().map(Task::getId).sorted().toList(), paged,
+                "Страницы шардов должны сливаться по возрастанию id");
+    }
+
+    @Test
+    void concurrentWritersKeepScheduleFreeOfOverlaps() throws Exception {
+        ShardedTaskManager manager = new ShardedTaskManager(SHARDS);
+        Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание"));
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int slot = thread;
+            results.add(pool.submit(() -> {
+                Random random = new Random(slot);
+                int created = 0;
+                start.await();
+                for (int i = 0; i < 500; i++) {
+                    /* Потоки претендуют на одни и те же интервалы, выиграть должен только один */
+                    LocalDateTime time = BASE.plusMinutes(random.nextInt(400) * 15L);
+                    Task task = random.nextBoolean()
+                            ? manager.createTask(new Task("Задача", "Описание", NEW, time, Duration.ofMinutes(20)))
+                            : manager.createSubtask(new Subtask("Подзадача", "Описание", NEW, epic.getId(),
+                            time, Duration.ofMinutes(20)));
+                    if (task != null) {
+                        created++;
+                    }
+                    manager.createTask(new Task("Задача без времени", "Описание"));
+                }
+                return created;
+            }));
+        }
+        start.countDown();
+        int created = 0;
+        for (Future<Integer> result : results) {
+            created += result.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        List<Task> scheduled = manager.getPrioritizedTasks().stream().filter(task -> task.getStartTime() != null)
+                .sorted(Comparator.comparing(Task::getStartTime)).toList();
+        assertEquals(created, scheduled.size());
+        for (int i = 1; i < scheduled.size(); i++) {
+            assertTrue(!scheduled.get(i).getStartTime().isBefore(scheduled.get(i - 1).getEndTime()),
+                    "Задачи разных шардов пересекаются");
+        }
+        Set<Integer> ids = new HashSet<>();
+        manager.streamTasks().forEach(task -> assertTrue(ids.add(task.getId()), "Повторный id"));
+        manager.streamSubtasks().forEach(subtask -> assertTrue(ids.add(subtask.getId()), "Повторный id"));
+        assertEquals(threads * 500 + created, ids.size());
+    }
+
+    /* Id шардированного менеджера отличаются от эталонных, поэтому сравниваются время начала по порядку
+    и состав выборки */
+    private static void assertSameSchedule(Map<Integer, Integer> referenceIds, List<Task> expected, List<Task> actual) {
+        assertEquals(expected.stream().map(Task::getStartTime).toList(),
+                actual.stream().map(Task::getStartTime).toList());
+        assertEquals(new HashSet<>(expected.stream().map(Task::getId).toList()),
+                new HashSet<>(actual.stream().map(task -> referenceIds.get(task.getId())).toList()));
+    }
+}
@@ -0,0 +1,273 @@
+package managers;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static model.enums.Status.DONE;
+import static model.enums.Status.IN_PROGRESS;
+import static model.enums.Status.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotTaskManagerTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 11, 5, 0, 0);
+
+    @Test
+    void oldSnapshotIsNotAffectedByLaterWrites() {
+        SnapshotTaskManager manager = new SnapshotTaskManager();
+        Task task = manager.createTask(new Task("Задача 1", "Описание задачи 1", NEW, BASE, Duration.ofMinutes(30)));
+        Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        manager.createSubtask(new Subtask("Подзадача 1", "Описание", NEW, epic.getId(),
+                BASE.plusHours(1), Duration.ofMinutes(30)));
+
+        SnapshotTaskManager.Snapshot before = manager.getSnapshot();
+        manager.updateTask(new Task(task.getId(), "Задача 1", "Новое описание", DONE, BASE, Duration.ofMinutes(30)));
+        manager.deleteEpicById(epic.getId());
+
+        assertEquals(before.getVersion() + 2, manager.getVersion(), "Каждая запись должна публиковать версию");
+        assertEquals(NEW, before.getTask(task.getId()).getStatus(), "Старая версия изменилась");
+        assertEquals(1, before.getAllSubtasks().size(), "Старая версия потеряла подзадачу");
+        assertEquals(2, before.getPrioritizedTasks().size(), "Старая версия потеряла приоритетную задачу");
+        assertEquals(DONE, manager.getTaskById(task.getId()).getStatus(), "Обновление не применилось");
+        assertTrue(manager.getAllSubtasks().isEmpty(), "Подзадачи удалённого эпика остались");
+        assertEquals(1, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void streamReadsVersionTakenAtCall() {
+        SnapshotTaskManager manager = new SnapshotTaskManager();
+        Task first = manager.createTask(new Task("Задача 1", "Описание", NEW, BASE, Duration.ofMinutes(30)));
+        manager.createTask(new Task("Задача 2", "Описание", NEW, BASE.plusHours(1), Duration.ofMinutes(30)));
+
+        Stream<Task> tasks = manager.streamTasks();
+        Stream<Task> prioritized = manager.streamPrioritizedTasks();
+        manager.deleteTaskById(first.getId());
+        manager.createTask(new Task("Задача 3", "Описание", NEW, BASE.minusHours(1), Duration.ofMinutes(30)));
+
+        assertEquals(2, tasks.count(), "Поток должен читать версию на момент вызова");
+        assertEquals(first, prioritized.findFirst().orElseThrow());
+        assertEquals(manager.getPrioritizedTasks(), manager.streamPrioritizedTasks().toList());
+    }
+
+    @Test
+    void epicStatusAndTimeFollowSubtasks() {
+        SnapshotTaskManager manager = new SnapshotTaskManager();
+        Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        Subtask first = manager.createSubtask(new Subtask("Подзадача 1", "Описание", NEW, epic.getId(),
+                BASE, Duration.ofMinutes(30)));
+        Subtask second = manager.createSubtask(new Subtask("Подзадача 2", "Описание", DONE, epic.getId(),
+                BASE.plusHours(2), Duration.ofMinutes(15)));
+
+        Epic saved = manager.getEpicById(epic.getId());
+        assertEquals(IN_PROGRESS, saved.getStatus());
+        assertEquals(BASE, saved.getStartTime());
+        assertEquals(BASE.plusHours(2).plusMinutes(15), saved.getEndTime());
+        assertEquals(Duration.ofMinutes(45), saved.getDuration());
+
+        manager.updateSubtask(new Subtask(first.getId(), "Подзадача 1", "Описание", DONE, epic.getId(),
+                BASE, Duration.ofMinutes(30)));
+        assertEquals(DONE, manager.getEpicById(epic.getId()).getStatus());
+
+        manager.deleteSubtaskById(second.getId());
+        saved = manager.getEpicById(epic.getId());
+        assertEquals(List.of(first.getId()), saved.getEpicSubtasks());
+        assertEquals(BASE.plusMinutes(30), saved.getEndTime());
+        assertEquals(DONE, saved.getStatus(), "Статус эпика из одной выполненной подзадачи должен быть DONE");
+    }
+
+    @Test
+    void overlappingTasksRejected() {
+        SnapshotTaskManager manager = new SnapshotTaskManager();
+        Task task = manager.createTask(new Task("Задача 1", "Описание", NEW, BASE, Duration.ofMinutes(60)));
+
+        assertNull(manager.createTask(new Task("Задача 2", "Описание", NEW,
+                BASE.plusMinutes(30), Duration.ofMinutes(60))), "Пересекающаяся задача создана");
+        assertNotNull(manager.createTask(new Task("Задача 3", "Описание", NEW,
+                BASE.plusMinutes(60), Duration.ofMinutes(60))), "Смежная задача не создана");
+        assertThrows(IllegalArgumentException.class, () -> manager.updateTask(new Task(task.getId(),
+                "Задача 1", "Описание", NEW, BASE.plusMinutes(90), Duration.ofMinutes(10))));
+        assertEquals(BASE, manager.getTaskById(task.getId()).getStartTime(), "Отклонённое обновление применилось");
+    }
+
+    @Test
+    void batchIsPublishedAsOneVersion() {
+        SnapshotTaskManager manager = new SnapshotTaskManager();
+        Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        long version = manager.getVersion();
+
+        List<Task> created = manager.createAll(List.of(
+                new Task("Задача 1", "Описание", NEW, BASE, Duration.ofMinutes(30)),
+                new Subtask("Подзадача 1", "Описание", DONE, epic.getId(), BASE.plusHours(1), Duration.ofMinutes(30)),
+                new Subtask("Подзадача 2", "Описание", NEW, epic.getId(), BASE.plusHours(2), Duration.ofMinutes(30))));
+
+        assertEquals(version + 1, manager.getVersion(), "Пакет должен публиковаться одной версией");
+        assertEquals(List.of(2, 3, 4), created.stream().map(Task::getId).toList());
+        assertEquals(IN_PROGRESS, manager.getEpicById(epic.getId()).getStatus());
+        assertThrows(IllegalArgumentException.class, () -> manager.createAll(List.of(
+                new Task("Задача 2", "Описание", NEW, BASE.plusHours(5), Duration.ofMinutes(30)),
+                new Task("Задача 3", "Описание", NEW, BASE.plusHours(5), Duration.ofMinutes(30)))));
+        assertEquals(version + 1, manager.getVersion(), "Отклонённый пакет не должен публиковаться");
+
+        manager.updateAll(List.of(
+                new Task(2, "Задача 1", "Описание", null, BASE.plusHours(1), Duration.ofMinutes(30)),
+                new Subtask(3, "Подзадача 1", "Описание", DONE, epic.getId(), BASE, Duration.ofMinutes(30)),
+                new Epic(epic.getId(), "Эпик 1", "Новое описание")));
+        Epic saved = manager.getEpicById(epic.getId());
+        assertEquals("Новое описание", saved.getDescription());
+        assertEquals(BASE, saved.getStartTime());
+        assertEquals(NEW, manager.getTaskById(2).getStatus());
+
+        manager.deleteAll(List.of(4, 2));
+        assertEquals(DONE, manager.getEpicById(epic.getId()).getStatus());
+        assertEquals(1, manager.getPrioritizedTasks().size());
+        assertEquals(version + 3, manager.getVersion());
+    }
+
+    @Test
+    void searchUsesSameRulesAsIndex() {
+        SnapshotTaskManager manager = new SnapshotTaskManager();
+        InMemoryTaskManager reference = new InMemoryTaskManager();
+        for (TaskManager taskManager : List.of(manager, reference)) {
+            Epic epic = taskManager.createEpic(new Epic("Платёжный шлюз", "Подключение payment-gateway"));
+            taskManager.createSubtask(new Subtask("Настроить шлюз", "Ключи", NEW, epic.getId()));
+            taskManager.createTask(new Task("Отчёт", "Отчет по платежам"));
+        }
+
+        for (String query : List.of("шлюз", "payment gateway", "отчет OR ключи", "шлюз отчет")) {
+            assertEquals(reference.search(query, 10).stream().map(Task::getId).sorted().toList(),
+                    manager.search(query, 10).stream().map(Task::getId).sorted().toList(), query);
+        }
+    }
+
+    /* Случайная последовательность операций должна давать те же ответы, что и InMemoryTaskManager */
+    @Test
+    void matchesInMemoryManagerOnRandomOperations() {
+        SnapshotTaskManager snapshotManager = new SnapshotTaskManager();
+        InMemoryTaskManager reference = new InMemoryTaskManager();
+        Random random = new Random(18);
+        List<Integer> epicIds = new ArrayList<>();
+        List<Integer> itemIds = new ArrayList<>();
+
+        for (int i = 0; i < 3_000; i++) {
+            LocalDateTime start = random.nextInt(8) == 0 ? null : BASE.plusMinutes(random.nextInt(2_000) * 10L);
+            Duration duration = Duration.ofMinutes(random.nextInt(5) * 10L);
+            int operation = random.nextInt(10);
+            if (operation == 0 || epicIds.isEmpty()) {
+                Epic first = snapshotManager.createEpic(new Epic("Эпик", "Описание"));
+                Epic second = reference.createEpic(new Epic("Эпик", "Описание"));
+                assertEquals(second.getId(), first.getId());
+                epicIds.add(first.getId());
+            } else if (operation <= 3) {
+                Task first = snapshotManager.createTask(new Task("Задача", "Описание", NEW, start, duration));
+                Task second = reference.createTask(new Task("Задача", "Описание", NEW, start, duration));
+                assertEquals(second == null, first == null, "Разный результат проверки пересечений");
+                if (first != null) {
+                    assertEquals(second.getId(), first.getId());
+                    itemIds.add(first.getId());
+                }
+            } else if (operation <= 6) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                Subtask first = snapshotManager.createSubtask(new Subtask("Подзадача", "Описание",
+                        random.nextBoolean() ? NEW : DONE, epicId, start, duration));
+                Subtask second = reference.createSubtask(new Subtask("Подзадача", "Описание",
+                        first == null ? NEW : first.getStatus(), epicId, start, duration));
+                assertEquals(second == null, first == null, "Разный результат проверки пересечений");
+                if (first != null) {
+                    assertEquals(second.getId(), first.getId());
+                    itemIds.add(first.getId());
+                }
+            } else if (operation == 7 && !itemIds.isEmpty()) {
+                int id = itemIds.remove(random.nextInt(itemIds.size()));
+                snapshotManager.deleteTaskById(id);
+                snapshotManager.deleteSubtaskById(id);
+                reference.deleteTaskById(id);
+                reference.deleteSubtaskById(id);
+            } else if (operation == 8) {
+                LocalDateTime to = start == null ? null : start.plusMinutes(random.nextInt(300));
+                assertEquals(reference.getTasksInRange(start, to), snapshotManager.getTasksInRange(start, to));
+                assertEquals(reference.getTasksInRange(start, to, 3), snapshotManager.getTasksInRange(start, to, 3));
+                assertEquals(reference.getNextTasks(start, 5), snapshotManager.getNextTasks(start, 5));
+            } else if (!epicIds.isEmpty()) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                Epic first = snapshotManager.getSnapshot().getEpic(epicId);
+                Epic second = reference.epics.get(epicId);
+                assertEquals(second.getStatus(), first.getStatus());
+                assertEquals(second.getStartTime(), first.getStartTime());
+                assertEquals(second.getEndTime(), first.getEndTime());
+                assertEquals(second.getEpicSubtasks(), first.getEpicSubtasks());
+            }
+        }
+        assertEquals(reference.getPrioritizedTasks(), snapshotManager.getPrioritizedTasks());
+        List<Task> referenceTasks = new ArrayList<>(reference.getAllTasks());
+        referenceTasks.sort(Comparator.comparingInt(Task::getId));
+        assertEquals(referenceTasks, snapshotManager.getAllTasks());
+        List<Subtask> referenceSubtasks = new ArrayList<>(reference.getAllSubtasks());
+        referenceSubtasks.sort(Comparator.comparingInt(Task::getId));
+        assertEquals(referenceSubtasks, snapshotManager.getAllSubtasks());
+        assertEquals(reference.getTasksPage(10, 20), snapshotManager.getTasksPage(10, 20));
+        assertEquals(reference.getSubtasksPage(100, 20), snapshotManager.getSubtasksPage(100, 20));
+    }
+
+    @Test
+    void readersSeeConsistentSnapshotsDuringWrites() throws Exception {
+        SnapshotTaskManager manager = new SnapshotTaskManager();
+        Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> readers = new ArrayList<>();
+        for (int reader = 0; reader < 3; reader++) {
+            readers.add(pool.submit(() -> {
+                start.await();
+                int checks = 0;
+                do {
+                    SnapshotTaskManager.Snapshot snapshot = manager.getSnapshot();
+                    /* Каждая созданная подзадача одной записью попадает и в эпик, и в приоритетный список */
+                    assertEquals(snapshot.getAllSubtasks().size(),
+                            snapshot.getEpic(epic.getId()).getEpicSubtasks().size());
+                    assertEquals(snapshot.getAllSubtasks().size() + snapshot.getAllTasks().size(),
+                            snapshot.getPrioritizedTasks().size());
+                    checks++;
+                } while (writing.get());
+                return checks;
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < 2_000; i++) {
+            LocalDateTime time = BASE.plusHours(i);
+            if (i % 2 == 0) {
+                manager.createTask(new Task("Задача", "Описание", NEW, time, Duration.ofMinutes(30)));
+            } else {
+                manager.createSubtask(new Subtask("Подзадача", "Описание", NEW, epic.getId(),
+                        time, Duration.ofMinutes(30)));
+            }
+        }
+        writing.set(false);
+        for (Future<Integer> reader : readers) {
+            assertTrue(reader.get() > 0, "Читатель не выполнил ни одной проверки");
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(2_000, manager.getPrioritizedTasks().size());
+    }
+}
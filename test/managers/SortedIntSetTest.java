@@ -0,0 +1,48 @@
+package managers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SortedIntSetTest {
+
+    @Test
+    void matchesTreeSetOnRandomOperations() {
+        SortedIntSet set = new SortedIntSet();
+        TreeSet<Integer> reference = new TreeSet<>();
+        Random random = new Random(22);
+        int next = 0;
+        for (int step = 0; step < 20_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 5) {
+                next += 1 + random.nextInt(3);
+                set.add(next);
+                reference.add(next);
+            } else if (action < 6) {
+                int value = random.nextInt(next + 1);
+                set.add(value);
+                reference.add(value);
+            } else {
+                int value = random.nextInt(next + 1);
+                set.remove(value);
+                reference.remove(value);
+            }
+            assertEquals(reference.size(), set.size(), "Размер разошёлся на шаге " + step);
+        }
+
+        int after = -1;
+        int[] page;
+        do {
+            page = set.after(after, 37);
+            int[] expected = reference.tailSet(after, false).stream().limit(37).mapToInt(Integer::intValue).toArray();
+            assertEquals(Arrays.toString(expected), Arrays.toString(page), "Страница после " + after);
+            after = page.length > 0 ? page[page.length - 1] : after;
+        } while (page.length == 37);
+        assertEquals(0, set.after(Integer.MAX_VALUE, 10).length);
+        assertEquals(0, set.after(0, 0).length);
+    }
+}
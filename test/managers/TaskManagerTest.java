@@ -1,15 +1,21 @@
 package managers;
 
+import exceptions.TaskNotFoundException;
+import exceptions.TaskOverlapException;
 import model.Epic;
 import model.Subtask;
 import model.Task;
+import model.enums.Status;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+import static model.enums.Status.DONE;
 import static model.enums.Status.IN_PROGRESS;
 import static model.enums.Status.NEW;
 import static org.junit.jupiter.api.Assertions.*;
@@ -581,4 +587,380 @@ class TaskManagerTest {
         assertEquals(task, list2.get(1), "Задача 1 должна быть второй в списке");
         assertEquals(subtask, list2.get(2), "Подзадача 1 должна быть третьей в списке");
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamsMatchListCopies() {
+        Epic epic = taskManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        for (int i = 0; i < 10; i++) {
+            LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 10 - i, 0);
+            taskManager.createTask(new Task("Задача " + i, "Описание", NEW, startTime, Duration.ofMinutes(30)));
+            taskManager.createSubtask(new Subtask("Подзадача " + i, "Описание", NEW, epic.getId(),
+                    startTime.plusMinutes(30), Duration.ofMinutes(15)));
+        }
+
+        assertEquals(taskManager.getAllTasks(), taskManager.streamTasks().toList());
+        assertEquals(taskManager.getAllEpics(), taskManager.streamEpics().toList());
+        assertEquals(taskManager.getAllSubtasks(), taskManager.streamSubtasks().toList());
+        assertEquals(taskManager.getPrioritizedTasks(), taskManager.streamPrioritizedTasks().toList(),
+                "Поток должен идти в порядке времени начала");
+        assertEquals(3, taskManager.streamPrioritizedTasks().limit(3).count());
+    }
+
+    @Test
+    void overlappingTasksAndSubtasksRejected() {
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+
+        taskManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        taskManager.createSubtask(new Subtask("Подзадача 1", "Описание подзадачи 1", NEW,
+                1, startTime, Duration.ofMinutes(30)));
+
+        assertNull(taskManager.createSubtask(new Subtask("Подзадача 2", "Описание подзадачи 2", NEW,
+                1, startTime.plusMinutes(10), Duration.ofMinutes(30))),
+                "Пересекающиеся подзадачи не должны сохраняться");
+        assertNull(taskManager.createTask(new Task("Задача 1", "Описание задачи 1", NEW,
+                startTime.minusMinutes(10), Duration.ofMinutes(15))),
+                "Задача, пересекающаяся с подзадачей, не должна сохраняться");
+        assertNotNull(taskManager.createTask(new Task("Задача 2", "Описание задачи 2", NEW,
+                startTime.plusMinutes(30), Duration.ofMinutes(15))),
+                "Задача, начинающаяся в момент окончания подзадачи, не пересекается с ней");
+        assertNotNull(taskManager.createTask(new Task("Задача 3", "Описание задачи 3", NEW,
+                null, null)), "Задача без времени начала не пересекается с другими");
+
+        taskManager.deleteSubtaskById(2);
+
+        assertNotNull(taskManager.createSubtask(new Subtask("Подзадача 3", "Описание подзадачи 3", NEW,
+                1, startTime.plusMinutes(10), Duration.ofMinutes(15))),
+                "После удаления подзадачи её интервал должен освободиться");
+    }
+
+    @Test
+    void getTasksInRangeAndNextTasks() {
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+
+        taskManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        Task task1 = taskManager.createTask(new Task("Задача 1", "Описание задачи 1", NEW,
+                startTime, Duration.ofMinutes(30)));
+        Subtask subtask = taskManager.createSubtask(new Subtask("Подзадача 1", "Описание подзадачи 1", NEW,
+                1, startTime.plusHours(1), Duration.ofMinutes(30)));
+        Task task2 = taskManager.createTask(new Task("Задача 2", "Описание задачи 2", NEW,
+                startTime.plusHours(2), Duration.ofMinutes(30)));
+        taskManager.createTask(new Task("Задача 3", "Описание задачи 3", NEW, null, null));
+
+        assertEquals(List.of(task1, subtask), taskManager.getTasksInRange(startTime.plusMinutes(10),
+                startTime.plusMinutes(70)), "В диапазон должны попасть пересекающиеся с ним задачи");
+        assertEquals(List.of(subtask, task2), taskManager.getTasksInRange(startTime.plusHours(1), null),
+                "Диапазон без верхней границы должен быть открытым");
+        assertTrue(taskManager.getTasksInRange(startTime.plusMinutes(30), startTime.plusHours(1)).isEmpty(),
+                "Задачи, закончившиеся к началу диапазона, в него не попадают");
+        assertEquals(List.of(task1, subtask), taskManager.getTasksInRange(startTime.plusMinutes(10), null, 2),
+                "Обход диапазона должен останавливаться на limit");
+        assertTrue(taskManager.getTasksInRange(null, null, 0).isEmpty(), "Нулевой limit - пустой результат");
+        assertEquals(List.of(subtask, task2), taskManager.getNextTasks(startTime.plusMinutes(1), 5),
+                "Ближайшие задачи должны начинаться не раньше указанного времени");
+        assertEquals(List.of(task1), taskManager.getNextTasks(null, 1),
+                "Количество ближайших задач должно ограничиваться limit");
+    }
+
+    @Test
+    void epicStatusCountersStayConsistent() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Random random = new Random(3);
+        Status[] statuses = Status.values();
+        Epic epic1 = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        Epic epic2 = manager.createEpic(new Epic("Эпик 2", "Описание эпика 2"));
+        List<Subtask> created = new ArrayList<>();
+        for (int step = 0; step < 2_000; step++) {
+            Epic epic = random.nextBoolean() ? epic1 : epic2;
+            int action = random.nextInt(10);
+            if (action < 4 || created.isEmpty()) {
+                Subtask subtask = manager.createSubtask(new Subtask("Подзадача " + step, "Описание подзадачи",
+                        statuses[random.nextInt(statuses.length)], epic.getId(), null, null));
+                created.add(subtask);
+            } else if (action < 8) {
+                Subtask subtask = created.get(random.nextInt(created.size()));
+                if (manager.getAllSubtasks().contains(subtask)) {
+                    subtask.setStatus(statuses[random.nextInt(statuses.length)]);
+                    manager.updateSubtask(subtask);
+                }
+            } else if (action < 9) {
+                manager.deleteSubtaskById(created.remove(random.nextInt(created.size())).getId());
+            } else {
+                manager.deleteAllSubtasks();
+                created.clear();
+            }
+
+            assertTrue(manager.isEpicStatusConsistent(epic1), "Счётчики эпика 1 разошлись на шаге " + step);
+            assertTrue(manager.isEpicStatusConsistent(epic2), "Счётчики эпика 2 разошлись на шаге " + step);
+        }
+    }
+
+    @Test
+    void epicTimeFollowsSubtaskChanges() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Random random = new Random(5);
+        LocalDateTime base = LocalDateTime.of(2024, 11, 5, 0, 0);
+        Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        List<Subtask> created = new ArrayList<>();
+        for (int step = 0; step < 2_000; step++) {
+            int action = random.nextInt(10);
+            LocalDateTime start = random.nextInt(5) == 0 ? null : base.plusMinutes(random.nextInt(100_000));
+            Duration duration = random.nextInt(5) == 0 ? null : Duration.ofMinutes(1 + random.nextInt(30));
+            if (action < 5 || created.isEmpty()) {
+                Subtask subtask = manager.createSubtask(new Subtask("Подзадача " + step, "Описание подзадачи",
+                        NEW, epic.getId(), start, duration));
+                if (subtask != null) {
+                    created.add(subtask);
+                }
+            } else if (action < 8) {
+                Subtask subtask = created.get(random.nextInt(created.size()));
+                manager.updateSubtask(new Subtask(subtask.getId(), subtask.getName(), subtask.getDescription(),
+                        NEW, epic.getId(), start, duration));
+                created.set(created.indexOf(subtask), manager.getSubtaskById(subtask.getId()));
+            } else {
+                manager.deleteSubtaskById(created.remove(random.nextInt(created.size())).getId());
+            }
+
+            assertTrue(manager.isEpicTimeConsistent(epic), "Время эпика разошлось на шаге " + step);
+        }
+        manager.deleteAllSubtasks();
+
+        assertNull(epic.getStartTime(), "У эпика без подзадач нет времени начала");
+        assertNull(epic.getDuration(), "У эпика без подзадач нет длительности");
+    }
+
+    @Test
+    void epicDurationDoesNotGrowOnRepeatedUpdates() {
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        Epic epic = taskManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        taskManager.createSubtask(new Subtask("Подзадача 1", "Описание подзадачи 1", NEW,
+                1, startTime, Duration.ofMinutes(10)));
+        taskManager.createSubtask(new Subtask("Подзадача 2", "Описание подзадачи 2", NEW,
+                1, startTime.plusHours(1), Duration.ofMinutes(20)));
+        for (int i = 0; i < 3; i++) {
+            taskManager.updateSubtask(new Subtask(3, "Подзадача 2", "Описание подзадачи 2", IN_PROGRESS,
+                    1, startTime.plusHours(1), Duration.ofMinutes(20)));
+        }
+
+        assertEquals(Duration.ofMinutes(30), epic.getDuration(), "Длительность эпика - сумма длительностей подзадач");
+        assertEquals(startTime, epic.getStartTime());
+        assertEquals(startTime.plusMinutes(80), epic.getEndTime(), "Окончание эпика - самое позднее окончание подзадач");
+    }
+
+    @Test
+    void batchIsValidatedAndAppliedAsAWhole() {
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        Epic epic = taskManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        Task existing = taskManager.createTask(new Task("Задача 1", "Описание задачи 1", NEW,
+                startTime, Duration.ofMinutes(30)));
+
+        Task overlapping = new Task("Задача 2", "Описание задачи 2", NEW,
+                startTime.plusMinutes(40), Duration.ofMinutes(30));
+        Task overlappingInBatch = new Task("Задача 3", "Описание задачи 3", NEW,
+                startTime.plusMinutes(50), Duration.ofMinutes(30));
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.createAll(List.of(overlapping, overlappingInBatch)),
+                "Пересечение внутри пакета должно отклонять весь пакет");
+        assertEquals(1, taskManager.getAllTasks().size(), "Отклонённый пакет не должен ничего создавать");
+        assertEquals(0, overlapping.getId(), "Отклонённый пакет не должен выдавать id");
+
+        List<Task> created = taskManager.createAll(List.of(
+                new Subtask("Подзадача 1", "Описание подзадачи 1", DONE, epic.getId(),
+                        startTime.plusHours(1), Duration.ofMinutes(30)),
+                new Subtask("Подзадача 2", "Описание подзадачи 2", NEW, epic.getId(),
+                        startTime.plusHours(2), Duration.ofMinutes(30)),
+                new Task("Задача 4", "Описание задачи 4", NEW, startTime.plusHours(3), Duration.ofMinutes(30))));
+        assertEquals(List.of(3, 4, 5), created.stream().map(Task::getId).toList());
+        assertEquals(IN_PROGRESS, taskManager.getEpicById(epic.getId()).getStatus());
+
+        /* Задача и подзадача меняются интервалами - по отдельности каждое обновление пересекалось бы */
+        taskManager.updateAll(List.of(
+                new Task(existing.getId(), "Задача 1", "Описание задачи 1", null,
+                        startTime.plusHours(1), Duration.ofMinutes(30)),
+                new Subtask(3, "Подзадача 1", "Описание подзадачи 1", DONE, epic.getId(),
+                        startTime, Duration.ofMinutes(30)),
+                new Subtask(4, "Подзадача 2", "Описание подзадачи 2", DONE, epic.getId(),
+                        startTime.plusHours(2), Duration.ofMinutes(30))));
+        assertEquals(NEW, taskManager.getTaskById(existing.getId()).getStatus(), "Пустой статус берётся из задачи");
+        assertEquals(DONE, taskManager.getEpicById(epic.getId()).getStatus());
+        assertEquals(startTime, taskManager.getEpicById(epic.getId()).getStartTime());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateAll(List.of(
+                new Task(100, "Задача", "Описание", NEW))), "Обновление несуществующей задачи");
+
+        taskManager.deleteAll(List.of(existing.getId(), 3, 100));
+        assertEquals(List.of(4), taskManager.getEpicById(epic.getId()).getEpicSubtasks());
+        assertEquals(2, taskManager.getPrioritizedTasks().size());
+        taskManager.deleteAll(List.of(epic.getId()));
+        assertTrue(taskManager.getAllSubtasks().isEmpty(), "Подзадачи удалённого эпика должны удаляться");
+    }
+
+    @Test
+    void historyEpicFollowsRenamesAndSubtaskChanges() {
+        for (TaskManager manager : List.of(new InMemoryTaskManager(), new ConcurrentTaskManager(),
+                new ShardedTaskManager(2))) {
+            String name = manager.getClass().getSimpleName();
+            Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+            Task task = manager.createTask(new Task("Задача 1", "Описание задачи 1"));
+            manager.getEpicById(epic.getId());
+            manager.getTaskById(task.getId());
+
+            manager.updateEpic(new Epic(epic.getId(), "Эпик 2", "Описание эпика 2"));
+            manager.createSubtask(new Subtask("Подзадача 1", "Описание подзадачи 1", DONE, epic.getId()));
+
+            List<Task> history = manager.getHistory();
+            assertEquals(List.of(epic.getId(), task.getId()), history.stream().map(Task::getId).toList(),
+                    "Переименование не должно менять порядок просмотров, " + name);
+            Epic viewed = (Epic) history.getFirst();
+            assertEquals("Эпик 2", viewed.getName(), name);
+            assertEquals(DONE, viewed.getStatus(), name);
+            assertEquals(1, viewed.getEpicSubtasks().size(), name);
+        }
+    }
+
+    @Test
+    void mixedBatchIsCheckedBeforeAnyChange() {
+        LocalDateTime startTime = LocalDateTime.of(2024, 11, 5, 1, 0);
+        for (TaskManager manager : List.of(new InMemoryTaskManager(), new ConcurrentTaskManager(),
+                new SnapshotTaskManager(), new ShardedTaskManager(3))) {
+            String name = manager.getClass().getSimpleName();
+            Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+            Task existing = manager.createTask(new Task("Задача 1", "Описание задачи 1", NEW,
+                    startTime, Duration.ofMinutes(30)));
+
+            /* Создание занимает интервал, который освобождает обновление того же пакета */
+            List<Task> created = manager.applyBatch(
+                    List.of(new Task("Задача 2", "Описание задачи 2", NEW, startTime, Duration.ofMinutes(30))),
+                    List.of(new Task(existing.getId(), "Задача 1", "Описание задачи 1", DONE,
+                            startTime.plusHours(1), Duration.ofMinutes(30))),
+                    List.of());
+            assertEquals(2, manager.getPrioritizedTasks().size(), name);
+            assertEquals(startTime.plusHours(1), manager.getTaskById(existing.getId()).getStartTime(), name);
+
+            Task unsaved = new Task("Задача 3", "Описание задачи 3", NEW, startTime.plusHours(5), Duration.ofMinutes(30));
+            assertThrows(TaskNotFoundException.class, () -> manager.applyBatch(List.of(unsaved),
+                    List.of(new Task(-5, "Задача", "Описание", NEW)), List.of(existing.getId())), name);
+            assertThrows(TaskNotFoundException.class, () -> manager.applyBatch(
+                    List.of(new Subtask("Подзадача", "Описание", NEW, -7, null, null)), List.of(), List.of()), name);
+            assertThrows(TaskOverlapException.class, () -> manager.applyBatch(
+                    List.of(new Task("Задача 4", "Описание задачи 4", NEW, startTime.plusMinutes(10),
+                            Duration.ofMinutes(10))),
+                    List.of(new Epic(epic.getId(), "Эпик 2", "Описание эпика 2")),
+                    List.of(created.getFirst().getId())), name);
+
+            /* Две версии одной задачи прошли бы проверку пересечений, пропускающую собственный id */
+            Task first = new Task(existing.getId(), "Задача 1", "Описание задачи 1", NEW,
+                    startTime.plusHours(6), Duration.ofMinutes(30));
+            Task second = new Task(existing.getId(), "Задача 1", "Описание задачи 1", NEW,
+                    startTime.plusHours(7), Duration.ofMinutes(30));
+            assertThrows(IllegalArgumentException.class,
+                    () -> manager.applyBatch(List.of(), List.of(first, second), List.of()), name);
+            assertThrows(IllegalArgumentException.class,
+                    () -> manager.applyBatch(List.of(), List.of(first), List.of(existing.getId())), name);
+            assertEquals(2, manager.getPrioritizedTasks().size(), "В расписании не должно остаться копий, " + name);
+            assertEquals(startTime.plusHours(1), manager.getTaskById(existing.getId()).getStartTime(), name);
+
+            assertEquals(0, unsaved.getId(), "Отклонённый пакет не должен выдавать id, " + name);
+            assertEquals(2, manager.getAllTasks().size(), "Отклонённый пакет не должен ничего удалять, " + name);
+            assertEquals("Эпик 1", manager.getEpicById(epic.getId()).getName(),
+                    "Отклонённый пакет не должен ничего обновлять, " + name);
+
+            manager.applyBatch(List.of(new Subtask("Подзадача 1", "Описание подзадачи 1", DONE, epic.getId(),
+                            startTime.plusHours(3), Duration.ofMinutes(30))),
+                    List.of(new Epic(epic.getId(), "Эпик 2", "Описание эпика 2")),
+                    List.of(existing.getId()));
+            assertEquals("Эпик 2", manager.getEpicById(epic.getId()).getName(), name);
+            assertEquals(DONE, manager.getEpicById(epic.getId()).getStatus(), name);
+            assertEquals(List.of(created.getFirst().getId()),
+                    manager.getAllTasks().stream().map(Task::getId).toList(), name);
+        }
+    }
+
+    @Test
+    void statusIndexesFollowTransitions() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Random random = new Random(20);
+        Status[] statuses = Status.values();
+        Epic epic = manager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        List<Integer> ids = new ArrayList<>();
+        for (int step = 0; step < 1_000; step++) {
+            Status status = statuses[random.nextInt(statuses.length)];
+            int action = random.nextInt(10);
+            if (action < 3 || ids.isEmpty()) {
+                ids.add(manager.createTask(new Task("Задача", "Описание", status)).getId());
+            } else if (action < 6) {
+                ids.add(manager.createSubtask(new Subtask("Подзадача", "Описание", status, epic.getId())).getId());
+            } else if (action < 8) {
+                int id = ids.get(random.nextInt(ids.size()));
+                if (manager.tasks.containsKey(id)) {
+                    manager.updateTask(new Task(id, "Задача", "Описание", status));
+                } else {
+                    manager.updateSubtask(new Subtask(id, "Подзадача", "Описание", status, epic.getId(),
+                            null, null));
+                }
+            } else if (action < 9) {
+                manager.deleteAll(List.of(ids.remove(random.nextInt(ids.size()))));
+            } else if (step % 100 == 9) {
+                manager.deleteAllSubtasks();
+                ids.removeIf(id -> !manager.tasks.containsKey(id));
+            }
+
+            for (Status expected : statuses) {
+                assertEquals(manager.getAllTasks().stream().filter(task -> task.getStatus() == expected).count(),
+                        manager.getTasksByStatus(expected).size(), "Индекс задач разошёлся на шаге " + step);
+                assertTrue(manager.getSubtasksByStatus(expected).stream()
+                        .allMatch(subtask -> subtask.getStatus() == expected), "Шаг " + step);
+                assertEquals(manager.getAllSubtasks().stream().filter(task -> task.getStatus() == expected).count(),
+                        manager.getSubtasksByStatus(expected).size(), "Индекс подзадач разошёлся на шаге " + step);
+            }
+            assertEquals(List.of(epic), manager.getEpicsByStatus(epic.getStatus()),
+                    "Эпик должен быть в индексе своего текущего статуса");
+        }
+    }
+
+    @Test
+    void searchFollowsChangesOfNamesAndDescriptions() {
+        Epic epic = taskManager.createEpic(new Epic("Платёжный шлюз", "Подключение payment-gateway"));
+        Subtask subtask = taskManager.createSubtask(new Subtask("Настроить шлюз", "Ключи payment-gateway",
+                NEW, epic.getId()));
+        Task task = taskManager.createTask(new Task("Отчёт", "Отчёт по платежам"));
+
+        assertEquals(List.of(epic.getId(), subtask.getId()),
+                taskManager.search("payment gateway", 10).stream().map(Task::getId).toList());
+        assertEquals(List.of(task.getId()), taskManager.search("отчет", 10).stream().map(Task::getId).toList(),
+                "Поиск не должен различать е и ё");
+
+        taskManager.updateEpic(new Epic(epic.getId(), "Эквайринг", "Договор с банком"));
+        taskManager.updateTask(new Task(task.getId(), "Отчёт", "Шлюз: отчёт по платежам", NEW));
+        taskManager.deleteSubtaskById(subtask.getId());
+
+        assertTrue(taskManager.search("payment", 10).isEmpty(), "Старые слова эпика и удалённая подзадача");
+        assertEquals(List.of(task.getId()), taskManager.search("шлюз", 10).stream().map(Task::getId).toList());
+        assertEquals(List.of(epic.getId(), task.getId()),
+                taskManager.search("банком OR платежам", 10).stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void pagesFollowIdOrderWithoutGapsOrRepeats() {
+        Epic epic = taskManager.createEpic(new Epic("Эпик 1", "Описание эпика 1"));
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            expected.add(taskManager.createTask(new Task("Задача " + i, "Описание")).getId());
+            taskManager.createSubtask(new Subtask("Подзадача " + i, "Описание", NEW, epic.getId()));
+        }
+        taskManager.deleteTaskById(expected.remove(3));
+        taskManager.deleteTaskById(expected.remove(10));
+
+        List<Integer> paged = new ArrayList<>();
+        int after = 0;
+        List<Task> page;
+        do {
+            page = taskManager.getTasksPage(after, 7);
+            page.forEach(task -> paged.add(task.getId()));
+            after = page.isEmpty() ? after : page.getLast().getId();
+        } while (page.size() == 7);
+
+        assertEquals(expected, paged, "Страницы должны обходить задачи по возрастанию id");
+        assertEquals(List.of(epic), taskManager.getEpicsPage(0, 10));
+        assertEquals(5, taskManager.getSubtasksPage(epic.getId(), 5).size());
+        assertTrue(taskManager.getSubtasksPage(Integer.MAX_VALUE, 5).isEmpty());
+    }
+}
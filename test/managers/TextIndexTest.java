@@ -0,0 +1,46 @@
+package managers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextIndexTest {
+
+    @Test
+    void tokenizesCyrillicAndLatinWords() {
+        assertEquals(List.of("оплата", "через", "payment", "gateway", "ежик", "v2"),
+                TextIndex.tokenize("Оплата через Payment-Gateway: ЁЖИК, v2!"));
+        assertTrue(TextIndex.tokenize(" -- ").isEmpty());
+    }
+
+    @Test
+    void searchCombinesAndOrTerms() {
+        TextIndex index = new TextIndex();
+        index.add(1, "Подключить payment-gateway", "Оплата картой");
+        index.add(2, "Gateway для логов", null);
+        index.add(3, "Отчёт", "Ежемесячный отчет по оплате");
+        index.add(4, "Payment", "Возвраты");
+
+        assertEquals(List.of(1), index.search("PAYMENT gateway", 10));
+        assertEquals(List.of(1, 4, 3), index.search("payment OR отчет", 10));
+        assertEquals(List.of(1, 4), index.search("payment OR отчет", 2));
+        assertTrue(index.search("payment неизвестное", 10).isEmpty());
+        assertTrue(index.search("OR", 10).isEmpty());
+    }
+
+    @Test
+    void reindexingReplacesPreviousWords() {
+        TextIndex index = new TextIndex();
+        index.add(1, "Старое название", "Описание");
+        index.add(1, "Новое название", "Описание");
+
+        assertTrue(index.search("старое", 10).isEmpty(), "Старые слова должны удаляться из индекса");
+        assertEquals(List.of(1), index.search("новое", 10));
+
+        index.remove(1);
+        assertTrue(index.search("название", 10).isEmpty());
+    }
+}
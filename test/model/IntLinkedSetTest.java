@@ -0,0 +1,77 @@
+package model;
+
+import com.google.gson.Gson;
+import managers.Managers;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntLinkedSetTest {
+
+    @Test
+    void keepsInsertionOrderLikeLinkedHashSet() {
+        Random random = new Random(11);
+        IntLinkedSet set = new IntLinkedSet();
+        Set<Integer> expected = new LinkedHashSet<>();
+        for (int step = 0; step < 50_000; step++) {
+            int value = random.nextInt(300);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertEquals(expected.add(value), set.add(value), "add(" + value + ")");
+                case 2 -> assertEquals(expected.remove(value), set.remove(value), "remove(" + value + ")");
+                default -> assertEquals(expected.contains(value), set.contains(value), "contains(" + value + ")");
+            }
+            if (step % 997 == 0) {
+                assertEquals(new ArrayList<>(expected), set.asList(), "Порядок разошёлся на шаге " + step);
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        List<Integer> iterated = new ArrayList<>();
+        set.forEach(iterated::add);
+        assertEquals(new ArrayList<>(expected), iterated);
+    }
+
+    @Test
+    void indexedReadsSkipTombstonesWithoutCompacting() {
+        IntLinkedSet set = new IntLinkedSet();
+        for (int value = 1; value <= 6; value++) {
+            set.add(value);
+        }
+        set.remove(1);
+        set.remove(4);
+        List<Integer> expected = List.of(2, 3, 5, 6);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), set.get(i), "get(" + i + ")");
+            assertEquals(i, set.asList().indexOf(expected.get(i)), "indexOf(" + expected.get(i) + ")");
+        }
+        assertEquals(-1, set.asList().indexOf(4));
+        assertEquals(expected, set.asList());
+
+        set.add(7);
+        assertEquals(List.of(2, 3, 5, 6, 7), set.asList(), "После чтений порядок вставки не должен меняться");
+        assertEquals(4, set.asList().indexOf(7));
+    }
+
+    @Test
+    void epicSubtasksSerializedAsIdArray() {
+        Gson gson = Managers.getGson();
+        Epic epic = new Epic(1, "Эпик 1", "Описание эпика 1");
+        epic.addSubtask(3);
+        epic.addSubtask(2);
+        epic.addSubtask(5);
+        epic.deleteSubtask(2);
+
+        String json = gson.toJson(epic);
+        Epic restored = gson.fromJson(json, Epic.class);
+
+        assertTrue(json.contains("\"subtasks\":[3,5]"), "Подзадачи должны сериализоваться массивом id");
+        assertEquals(List.of(3, 5), restored.getEpicSubtasks());
+        assertEquals(epic, restored);
+    }
+}
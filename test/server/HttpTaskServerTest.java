@@ -1,6 +1,8 @@
 package server;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
 import managers.InMemoryTaskManager;
 import model.Epic;
@@ -22,6 +24,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import static model.enums.Status.DONE;
 import static model.enums.Status.IN_PROGRESS;
 import static model.enums.Status.NEW;
 import static org.junit.jupiter.api.Assertions.*;
@@ -158,6 +161,20 @@ class HttpTaskServerTest {
                 "Отправленная и полученная задачи должны быть идентичными");
     }
 
+    @Test
+    void shouldRejectOverlappingNewTask() throws IOException, InterruptedException {
+        LocalDateTime startTime2 = LocalDateTime.of(2024, 10, 23, 18, 5);
+        Task newTask = new Task("Задача 2", "Описание задачи 2", NEW, startTime2, Duration.ofMinutes(5));
+        String json = gson.toJson(newTask);
+
+        URI url = URI.create("http://localhost:8080/tasks");
+        HttpRequest request = HttpRequest.newBuilder().uri(url).POST(HttpRequest.BodyPublishers.ofString(json)).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(406, response.statusCode(), "Пересекающаяся задача должна возвращать код 406");
+        assertEquals(1, taskManager.getAllTasks().size(), "Пересекающаяся задача не должна сохраняться");
+    }
+
     @Test
     void shouldCreateNewEpic() throws IOException, InterruptedException {
         Epic newEpic = new Epic("Эпик 2", "Описание эпика 2");
@@ -292,4 +309,168 @@ class HttpTaskServerTest {
         assertEquals(list.size(), taskManager.getAllSubtasks().size(),
                 "Размер списка переданных подзадач должен быть равен размеру списка полученных");
     }
+
+    @Test
+    void shouldReturnPrioritizedTasksInRange() throws IOException, InterruptedException {
+        URI url = URI.create("http://localhost:8080/prioritized?from=2024-10-23T18:15:00&to=2024-10-23T19:00:00");
+        HttpRequest request = HttpRequest.newBuilder().uri(url).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        List<Integer> taskIds = gson.fromJson(response.body(), new TypeToken<ArrayList<Integer>>(){}.getType());
+
+        assertEquals(200, response.statusCode(), "Должен вернуться код 200");
+        assertEquals(List.of(subtask.getId()), taskIds, "В диапазон должна попасть только Подзадача 1");
+
+        url = URI.create("http://localhost:8080/prioritized?limit=1");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        taskIds = gson.fromJson(response.body(), new TypeToken<ArrayList<Integer>>(){}.getType());
+
+        assertEquals(List.of(task.getId()), taskIds, "Должна вернуться только ближайшая задача");
+
+        /* Задача 1 идёт с 18:00 до 18:09 и к 18:05 ещё не закончилась */
+        url = URI.create("http://localhost:8080/prioritized?from=2024-10-23T18:05:00&limit=1");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        taskIds = gson.fromJson(response.body(), new TypeToken<ArrayList<Integer>>(){}.getType());
+
+        assertEquals(List.of(task.getId()), taskIds, "from без to - задачи, пересекающиеся с открытым диапазоном");
+
+        url = URI.create("http://localhost:8080/prioritized?from=вчера");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode(), "Некорректная дата должна возвращать код 400");
+    }
+
+    @Test
+    void shouldApplyBatch() throws IOException, InterruptedException {
+        String body = "{\"tasks\": [{\"name\": \"Задача 2\", \"description\": \"Описание задачи 2\","
+                + " \"status\": \"NEW\", \"startTime\": \"2024-10-24T10:00:00\", \"duration\": \"PT15M\"}],"
+                + " \"subtasks\": [{\"id\": " + subtask.getId() + ", \"name\": \"Подзадача 1\","
+                + " \"description\": \"Описание подзадачи 1\", \"status\": \"DONE\", \"epicId\": " + epic.getId()
+                + "}], \"delete\": [" + task.getId() + "]}";
+        URI url = URI.create("http://localhost:8080/batch");
+        HttpRequest request = HttpRequest.newBuilder().uri(url)
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(201, response.statusCode(), "Должен вернуться код 201");
+        assertEquals(1, taskManager.getAllTasks().size(), "Задача 1 удалена, Задача 2 создана");
+        assertEquals("Задача 2", taskManager.getAllTasks().getFirst().getName());
+        assertEquals(DONE, taskManager.getEpicById(epic.getId()).getStatus(), "Статус эпика пересчитан");
+
+        request = HttpRequest.newBuilder().uri(url).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(406, response.statusCode(), "Пересекающийся пакет должен возвращать код 406");
+        assertEquals(1, taskManager.getAllTasks().size(), "Отклонённый пакет не должен ничего создавать");
+    }
+
+    @Test
+    void shouldRejectBatchWithUnknownIdWithoutChanges() throws IOException, InterruptedException {
+        String body = "{\"tasks\": [{\"name\": \"Задача 2\", \"description\": \"Описание задачи 2\","
+                + " \"status\": \"NEW\", \"startTime\": \"2024-10-25T10:00:00\", \"duration\": \"PT15M\"},"
+                + " {\"id\": 1000, \"name\": \"Задача\", \"description\": \"Описание\", \"status\": \"NEW\"}],"
+                + " \"delete\": [" + task.getId() + "]}";
+        URI url = URI.create("http://localhost:8080/batch");
+        HttpRequest request = HttpRequest.newBuilder().uri(url)
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(404, response.statusCode(), "Пакет с несуществующим id должен возвращать код 404");
+        assertEquals(List.of(task.getId()), taskManager.getAllTasks().stream().map(Task::getId).toList(),
+                "Отклонённый пакет не должен ни создавать, ни удалять");
+
+        body = "{\"tasks\": [{\"id\": " + task.getId() + ", \"name\": \"Задача\", \"description\": \"Описание\","
+                + " \"status\": \"DONE\"}], \"delete\": [" + task.getId() + "]}";
+        request = HttpRequest.newBuilder().uri(url).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode(), "Id, который обновляется и удаляется, должен возвращать код 400");
+        assertEquals(NEW, taskManager.getTaskById(task.getId()).getStatus(), "Отклонённый пакет не должен ничего менять");
+    }
+
+    @Test
+    void shouldFilterByStatus() throws IOException, InterruptedException {
+        taskManager.updateSubtask(new Subtask(subtask.getId(), "Подзадача 1", "Описание подзадачи 1", IN_PROGRESS,
+                epic.getId(), subtask.getStartTime(), subtask.getDuration()));
+
+        URI url = URI.create("http://localhost:8080/subtasks?status=in_progress");
+        HttpRequest request = HttpRequest.newBuilder().uri(url).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        List<Subtask> subtasks = gson.fromJson(response.body(), new TypeToken<ArrayList<Subtask>>(){}.getType());
+
+        assertEquals(200, response.statusCode(), "Должен вернуться код 200");
+        assertEquals(List.of(subtask.getId()), subtasks.stream().map(Subtask::getId).toList());
+
+        url = URI.create("http://localhost:8080/tasks?status=DONE");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("[]", response.body(), "Выполненных задач нет");
+
+        url = URI.create("http://localhost:8080/epics?status=IN_PROGRESS");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        List<Epic> epics = gson.fromJson(response.body(), new TypeToken<ArrayList<Epic>>(){}.getType());
+
+        assertEquals(List.of(epic.getId()), epics.stream().map(Epic::getId).toList());
+
+        url = URI.create("http://localhost:8080/tasks?status=someday");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode(), "Неизвестный статус должен возвращать код 400");
+    }
+
+    @Test
+    void shouldSearchByWords() throws IOException, InterruptedException {
+        URI url = URI.create("http://localhost:8080/search?q=%D0%BF%D0%BE%D0%B4%D0%B7%D0%B0%D0%B4%D0%B0%D1%87%D0%B8"
+                + "+OR+%D0%B7%D0%B0%D0%B4%D0%B0%D1%87%D0%B8");
+        HttpRequest request = HttpRequest.newBuilder().uri(url).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        List<Task> found = gson.fromJson(response.body(), new TypeToken<ArrayList<Task>>(){}.getType());
+
+        assertEquals(200, response.statusCode(), "Должен вернуться код 200");
+        assertEquals(List.of(subtask.getId(), task.getId()), found.stream().map(Task::getId).toList(),
+                "Запрос \"подзадачи OR задачи\" находит подзадачу и задачу");
+
+        url = URI.create("http://localhost:8080/search?q=");
+        request = HttpRequest.newBuilder().uri(url).GET().build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode(), "Пустой запрос должен возвращать код 400");
+    }
+
+    @Test
+    void shouldReturnTasksByPages() throws IOException, InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            taskManager.createTask(new Task("Задача " + (i + 2), "Описание"));
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        String cursor = "0";
+        int pages = 0;
+        while (cursor != null) {
+            URI url = URI.create("http://localhost:8080/tasks?limit=2&after=" + cursor);
+            HttpRequest request = HttpRequest.newBuilder().uri(url).GET().build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode(), "Должен вернуться код 200");
+
+            JsonObject page = JsonParser.parseString(response.body()).getAsJsonObject();
+            page.getAsJsonArray("items").forEach(item -> ids.add(item.getAsJsonObject().get("id").getAsInt()));
+            cursor = page.has("nextCursor") ? page.get("nextCursor").getAsString() : null;
+            pages++;
+        }
+
+        assertEquals(3, pages, "Пять задач по две на странице");
+        assertEquals(taskManager.getAllTasks().stream().map(Task::getId).sorted().toList(), ids);
+
+        URI url = URI.create("http://localhost:8080/tasks?limit=100000");
+        HttpRequest request = HttpRequest.newBuilder().uri(url).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(400, response.statusCode(), "Слишком большая страница должна возвращать код 400");
+    }
 }
@@ -0,0 +1,53 @@
+package storage;
+
+import model.Subtask;
+import model.Task;
+import model.enums.Status;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static model.enums.Status.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryTaskFormatTest {
+
+    @Test
+    void subtaskSurvivesRoundTrip() throws IOException {
+        Subtask subtask = new Subtask(7, "Подзадача 7", "Описание подзадачи 7", IN_PROGRESS,
+                3, LocalDateTime.of(2024, 11, 5, 1, 0, 30, 125_000_000), Duration.ofSeconds(-90, 500));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTaskFormat.writeTask(out, subtask);
+        BinaryTaskFormat.writeEnd(out);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        Task parsed = BinaryTaskFormat.readTask(in);
+
+        assertInstanceOf(Subtask.class, parsed);
+        assertEquals(subtask.getName(), parsed.getName());
+        assertEquals(IN_PROGRESS, parsed.getStatus());
+        assertEquals(3, ((Subtask) parsed).getEpicId());
+        assertEquals(subtask.getStartTime(), parsed.getStartTime());
+        assertEquals(subtask.getDuration(), parsed.getDuration());
+        assertNull(BinaryTaskFormat.readTask(in), "После задачи должен читаться маркер конца снимка");
+    }
+
+    @Test
+    void unknownStatusCodeIsRejectedAsMalformed() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTaskFormat.writeTask(out, new Task(1, "Задача 1", "Описание задачи 1"));
+        byte[] bytes = out.toByteArray();
+        /* тег типа и id=1 занимают по байту, следом идёт код статуса */
+        bytes[2] = (byte) Status.values().length;
+
+        assertThrows(IOException.class, () -> BinaryTaskFormat.readTask(new ByteArrayInputStream(bytes)),
+                "Неизвестный код статуса должен считаться повреждённым снимком");
+    }
+}
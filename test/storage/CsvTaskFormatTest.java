@@ -0,0 +1,52 @@
+package storage;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static model.enums.Status.DONE;
+import static model.enums.Status.IN_PROGRESS;
+import static model.enums.Status.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvTaskFormatTest {
+
+    @Test
+    void formatMatchesToStringForPlainText() {
+        Task task = new Task(1, "Задача 1", "Описание задачи 1", NEW,
+                LocalDateTime.of(2024, 11, 5, 1, 0), Duration.ofMinutes(10));
+
+        assertEquals(task.toString(), CsvTaskFormat.format(task), "Формат строки не должен измениться");
+    }
+
+    @Test
+    void quotedTextSurvivesRoundTrip() {
+        Subtask subtask = new Subtask(7, "Оплата, \"шлюз\"", "Строка 1\nСтрока 2\\конец", IN_PROGRESS,
+                3, LocalDateTime.of(2024, 11, 5, 1, 0, 30, 125_000_000), Duration.ofSeconds(-90, 500));
+
+        Task parsed = CsvTaskFormat.parse(CsvTaskFormat.format(subtask));
+
+        assertInstanceOf(Subtask.class, parsed);
+        assertEquals(subtask.getName(), parsed.getName());
+        assertEquals(subtask.getDescription(), parsed.getDescription());
+        assertEquals(3, ((Subtask) parsed).getEpicId());
+        assertEquals(subtask.getStartTime(), parsed.getStartTime());
+        assertEquals(subtask.getDuration(), parsed.getDuration());
+    }
+
+    @Test
+    void parsesNullsAndLongDurations() {
+        Epic epic = (Epic) CsvTaskFormat.parse("2,EPIC,Эпик id 1,DONE,Описание, ,null,PT49H30M,null");
+
+        assertEquals(DONE, epic.getStatus());
+        assertEquals("Эпик id 1", epic.getName());
+        assertNull(epic.getStartTime());
+        assertEquals(Duration.ofHours(49).plusMinutes(30), epic.getDuration());
+    }
+}
@@ -0,0 +1,56 @@
+package storage;
+
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelCsvLoaderTest {
+
+    private static final String HEADER = "id,type,name,status,description,epic,startTime,duration,endTime\n";
+
+    @Test
+    void rejectsFileWithoutHeader() throws IOException {
+        File file = File.createTempFile("parallelTasks", ".csv");
+        file.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            writer.print("1,TASK,Задача 1,NEW,Описание задачи 1, ,null,null,null\n");
+        }
+
+        assertThrows(IOException.class, () -> new ParallelCsvLoader().load(file),
+                "Файл без заголовка не должен загружаться молча");
+    }
+
+    @Test
+    void loadsLargeFileInChunksPreservingOrder() throws IOException {
+        File file = File.createTempFile("parallelTasks", ".csv");
+        file.deleteOnExit();
+        int rows = 40_000;
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            writer.print(HEADER);
+            for (int i = 1; i <= rows; i++) {
+                writer.print(i + ",TASK,Задача id " + i + ",NEW,Описание задачи " + i
+                        + ", ,2024-11-05T01:00,PT10M,2024-11-05T01:10\n");
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ParallelCsvLoader loader = new ParallelCsvLoader(pool);
+
+        List<Task> tasks = loader.load(file);
+        pool.shutdown();
+
+        assertEquals(rows, tasks.size(), "Должны загрузиться все строки, включая содержащие \"id\"");
+        for (int i = 0; i < rows; i++) {
+            assertEquals(i + 1, tasks.get(i).getId(), "Порядок строк должен сохраняться");
+        }
+        assertEquals("Задача id 40000", tasks.getLast().getName());
+    }
+}
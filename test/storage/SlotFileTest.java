@@ -0,0 +1,66 @@
+package storage;
+
+import exceptions.FileLoadException;
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static model.enums.Status.DONE;
+import static model.enums.Status.NEW;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotFileTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 11, 5, 1, 0);
+
+    private File slotsFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        slotsFile = new File(Files.createTempDirectory("journal").toFile(), "tasks.slots");
+    }
+
+    @Test
+    void staleHeadDoesNotComeBackAfterDelete() throws IOException, FileLoadException {
+        SlotFile slots = new SlotFile(slotsFile, SlotFile.DEFAULT_SLOT_SIZE, true);
+        slots.load();
+        slots.write(List.of(new Task(1, "Задача 1", "Версия 1", NEW, START, Duration.ofMinutes(10))), List.of());
+        slots.write(List.of(new Task(1, "Задача 1", "Версия 2", DONE, START, Duration.ofMinutes(10))), List.of());
+        slots.close();
+        /* Сбой между записью новой версии и освобождением старой головы: старая голова снова HEAD */
+        try (RandomAccessFile raw = new RandomAccessFile(slotsFile, "rw")) {
+            raw.seek(SlotFile.FILE_HEADER_SIZE);
+            raw.write(1);
+        }
+
+        slots = new SlotFile(slotsFile, SlotFile.DEFAULT_SLOT_SIZE, true);
+        List<Task> loaded = slots.load();
+        assertEquals(1, loaded.size());
+        assertEquals("Версия 2", loaded.getFirst().getDescription(), "Должна загружаться новая версия");
+        slots.write(List.of(), List.of(1));
+        slots.close();
+
+        slots = new SlotFile(slotsFile, SlotFile.DEFAULT_SLOT_SIZE, true);
+        assertTrue(slots.load().isEmpty(), "Удалённая запись не должна возвращаться старой версией");
+        slots.close();
+    }
+
+    @Test
+    void slotSizeMustFitLengthField() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SlotFile(slotsFile, SlotFile.MAX_SLOT_SIZE + 1, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SlotFile(slotsFile, SlotFile.SLOT_HEADER_SIZE, false));
+        new SlotFile(slotsFile, SlotFile.MAX_SLOT_SIZE, false).close();
+    }
+}
@@ -0,0 +1,127 @@
+package storage;
+
+import exceptions.FileLoadException;
+import exceptions.ManagerSaveException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TaskJournalTest {
+
+    private File journalFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journalFile = new File(Files.createTempDirectory("journal").toFile(), "tasks.csv.journal");
+    }
+
+    @Test
+    void groupCommitKeepsAllRecordsFromConcurrentWriters() throws InterruptedException, FileLoadException {
+        StorageSettings settings = new StorageSettings(StorageMode.JOURNAL);
+        settings.setDurability(Durability.GROUP);
+        settings.setGroupCommitWindowMillis(2);
+        TaskJournal journal = new TaskJournal(journalFile, settings);
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int writer = i;
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    journal.append(JournalOperation.DELETE, "TASK," + (writer * 1000 + j));
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        journal.close();
+
+        List<String> payloads = new ArrayList<>();
+        int records = new TaskJournal(journalFile, settings).replay((operation, payload) -> payloads.add(payload));
+
+        assertEquals(400, records, "Все записи должны попасть в журнал");
+        assertEquals(400, payloads.stream().distinct().count(), "Записи не должны дублироваться");
+    }
+
+    @Test
+    void syncAndAsyncJournalsReplayInOrder() throws FileLoadException {
+        for (Durability durability : Durability.values()) {
+            File file = new File(journalFile.getPath() + "." + durability);
+            StorageSettings settings = new StorageSettings(StorageMode.JOURNAL);
+            settings.setDurability(durability);
+            TaskJournal journal = new TaskJournal(file, settings);
+            journal.append(JournalOperation.CLEAR, "TASK");
+            journal.rotate();
+            journal.append(JournalOperation.DELETE, "EPIC,2");
+            journal.close();
+
+            List<JournalOperation> operations = new ArrayList<>();
+            new TaskJournal(file, settings).replay((operation, payload) -> operations.add(operation));
+
+            assertEquals(List.of(JournalOperation.CLEAR, JournalOperation.DELETE), operations,
+                    "Порядок записей нарушен для режима " + durability);
+        }
+    }
+
+    @Test
+    void appendAfterCloseIsRejectedInEveryMode() throws FileLoadException {
+        for (Durability durability : Durability.values()) {
+            File file = new File(journalFile.getPath() + "." + durability);
+            StorageSettings settings = new StorageSettings(StorageMode.JOURNAL);
+            settings.setDurability(durability);
+            TaskJournal journal = new TaskJournal(file, settings);
+            journal.append(JournalOperation.CLEAR, "TASK");
+            journal.close();
+
+            assertThrows(ManagerSaveException.class, () -> journal.append(JournalOperation.DELETE, "EPIC,2"),
+                    "Запись в закрытый журнал должна отклоняться для режима " + durability);
+
+            List<JournalOperation> operations = new ArrayList<>();
+            new TaskJournal(file, settings).replay((operation, payload) -> operations.add(operation));
+
+            assertEquals(List.of(JournalOperation.CLEAR), operations,
+                    "После закрытия журнал не должен меняться для режима " + durability);
+        }
+    }
+
+    @Test
+    void durableSubmittersNeverHangOnConcurrentClose() throws InterruptedException {
+        StorageSettings settings = new StorageSettings(StorageMode.JOURNAL);
+        settings.setDurability(Durability.ASYNC);
+        for (int round = 0; round < 200; round++) {
+            TaskJournal journal = new TaskJournal(new File(journalFile.getPath() + "." + round), settings);
+            JournalWriter writer = new JournalWriter(journal, 1, true, () -> { });
+            List<Thread> submitters = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        while (true) {
+                            writer.submit(new JournalRecord(JournalOperation.CLEAR, "TASK"));
+                        }
+                    } catch (ManagerSaveException exp) {
+                        // поток записи остановлен
+                    }
+                });
+                submitters.add(thread);
+                thread.start();
+            }
+            Thread.sleep(1);
+            writer.close();
+            for (Thread thread : submitters) {
+                thread.join(5_000);
+                assertFalse(thread.isAlive(), "Поток, ожидающий записи, не должен зависать после закрытия");
+            }
+            journal.close();
+        }
+    }
+}